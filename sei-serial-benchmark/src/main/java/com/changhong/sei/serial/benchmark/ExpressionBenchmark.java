@@ -0,0 +1,70 @@
+package com.changhong.sei.serial.benchmark;
+
+import com.changhong.sei.serial.sdk.SerialUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编号表达式解析相关的基准测试，覆盖日期前缀、参数和不同长度的序号
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+
+    @Param({"PO${YYYYMMDD}#{00000}", "${dept}-${YYYY}-#{0000}", "BAR${YYYYMMDDHHmmss}#{0000000000}", "CODE#{000000}"})
+    public String expression;
+
+    private Map<String, String> param;
+
+    private String serialItem;
+
+    private String code;
+
+    private long serial;
+
+    @Setup
+    public void setup() {
+        param = new HashMap<>();
+        param.put("dept", "D01");
+        serialItem = SerialUtils.getSerialItem(expression);
+        code = SerialUtils.parserExpression(expression, 12345L, serialItem, param);
+    }
+
+    @Benchmark
+    public String parserExpression() {
+        return SerialUtils.parserExpression(expression, ++serial, serialItem, param);
+    }
+
+    @Benchmark
+    public String getSerialItem() {
+        return SerialUtils.getSerialItem(expression);
+    }
+
+    @Benchmark
+    public Long parseExpressionAndGetNumber() {
+        return SerialUtils.parseExpressionAndGetNumber(code, expression);
+    }
+
+    @Benchmark
+    public String getValueKey() {
+        return SerialUtils.getValueKey("com.changhong.sei.serial.entity.Order", "CODE_TYPE", "10044",
+                SerialUtils.DEFAULT_ISOLATION, "20261017");
+    }
+}
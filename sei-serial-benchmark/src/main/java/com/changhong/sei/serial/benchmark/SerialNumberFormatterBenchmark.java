@@ -0,0 +1,63 @@
+package com.changhong.sei.serial.benchmark;
+
+import com.changhong.sei.serial.sdk.SerialNumberFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序号补0格式化的基准测试
+ * <p>
+ * 写入复用的StringBuilder和char[]时稳态下不应有内存分配，
+ * 运行时配合 -prof gc 查看 gc.alloc.rate.norm 应接近 0 B/op
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerialNumberFormatterBenchmark {
+
+    @Param({"5", "10"})
+    public int width;
+
+    private StringBuilder builder;
+
+    private char[] chars;
+
+    private long serial;
+
+    @Setup
+    public void setup() {
+        builder = new StringBuilder(32);
+        chars = new char[32];
+    }
+
+    @Benchmark
+    public int appendTo() {
+        builder.setLength(0);
+        SerialNumberFormatter.appendTo(builder, ++serial, width);
+        return builder.length();
+    }
+
+    @Benchmark
+    public int formatToChars() {
+        return SerialNumberFormatter.format(++serial, width, chars, 0) + chars[0];
+    }
+
+    @Benchmark
+    public String format() {
+        return SerialNumberFormatter.format(++serial, width);
+    }
+}
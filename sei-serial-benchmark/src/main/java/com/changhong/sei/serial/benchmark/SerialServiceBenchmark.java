@@ -0,0 +1,134 @@
+package com.changhong.sei.serial.benchmark;
+
+import com.changhong.sei.serial.sdk.SerialService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.persistence.Table;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SerialService.getNumber 本地端到端基准测试
+ * <p>
+ * 使用进程内的http服务模拟给号服务，H2内存数据库模拟业务表：
+ * server   服务端生成编号，每次请求一次http
+ * segment  服务端生成编号，号段模式
+ * database 客户端生成编号，每次从数据库校准
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerialServiceBenchmark {
+
+    private static final String EXPRESSION = "PO${YYYYMMDD}#{000000}";
+
+    @Param({"server", "segment", "database"})
+    public String mode;
+
+    private final AtomicLong serverCounter = new AtomicLong();
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private Connection keepAlive;
+
+    private SerialService serialService;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, SQLException {
+        boolean genFlag = !"database".equals(mode);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/serialNumberConfig/findByClassName", exchange -> respond(exchange, genFlag));
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        if (genFlag) {
+            serialService = new SerialService(url);
+            if ("segment".equals(mode)) {
+                serialService.setSegmentSize(1000);
+            }
+        } else {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:serial-benchmark;DB_CLOSE_DELAY=-1");
+            keepAlive = dataSource.getConnection();
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("create table if not exists bench_order(code varchar(64))");
+                statement.execute("create index if not exists idx_bench_order_code on bench_order(code)");
+                statement.execute("insert into bench_order(code) values ('PO20261017000001'), ('PO20261017000002')");
+            }
+            serialService = new SerialService(url, dataSource);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        if (keepAlive != null) {
+            keepAlive.close();
+        }
+    }
+
+    @Benchmark
+    public String getNumber() {
+        return serialService.getNumber(BenchOrder.class);
+    }
+
+    private void respond(HttpExchange exchange, boolean genFlag) throws IOException {
+        long count = 1;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith("count=")) {
+                    count = Long.parseLong(pair.substring("count=".length()));
+                }
+            }
+        }
+        long current = genFlag ? serverCounter.addAndGet(count) : 1L;
+        String body = "{\"configId\":\"benchmark\",\"isolationCode\":\"default\",\"dateString\":\"dateString\","
+                + "\"currentNumber\":" + current + ",\"serialNumberConfig\":{"
+                + "\"entityClassName\":\"" + BenchOrder.class.getName() + "\",\"tenantCode\":\"10044\","
+                + "\"configType\":\"CODE_TYPE\",\"name\":\"benchmark\",\"expressionConfig\":\"" + EXPRESSION + "\","
+                + "\"initialSerial\":1,\"genFlag\":" + genFlag + ",\"cycleStrategy\":\"MAX_CYCLE\"}}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Table(name = "bench_order")
+    public static class BenchOrder {
+    }
+}
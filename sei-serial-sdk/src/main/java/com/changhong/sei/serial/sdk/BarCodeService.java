@@ -3,14 +3,26 @@ package com.changhong.sei.serial.sdk;
 import com.changhong.sei.serial.sdk.entity.BarCodeDto;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class BarCodeService {
 
     private SerialServiceProperty serialServiceProperty;
 
+    private SerialTransport transport;
+
+    private Executor executor = SerialExecutors.defaultExecutor();
+
     public BarCodeService(SerialServiceProperty serialServiceProperty){
+        this(serialServiceProperty, new HttpSerialTransport(serialServiceProperty.getConnectTimeout(), serialServiceProperty.getReadTimeout()));
+    }
+
+    public BarCodeService(SerialServiceProperty serialServiceProperty, SerialTransport transport){
         this.serialServiceProperty = serialServiceProperty;
+        this.transport = transport;
     }
 
     public String genBarCode(String classPath,String referenceId){
@@ -38,11 +50,73 @@ public class BarCodeService {
     }
 
     public String genBarCode(String classPath,Map<String,String> params, String isolation, String referenceId){
+        return SerialUtils.getBarCodeFromService(transport,serialServiceProperty.getUrl(),
+                buildBarCodeDto(classPath,params,isolation,referenceId));
+    }
+
+    public CompletableFuture<String> genBarCodeAsync(String classPath,String referenceId){
+        return this.genBarCodeAsync(classPath,new HashMap<>(),SerialUtils.DEFAULT_ISOLATION,referenceId);
+    }
+
+    public CompletableFuture<String> genBarCodeAsync(Class clz,Map<String,String> params, String isolation, String referenceId){
+        return this.genBarCodeAsync(clz.getName(),params,isolation,referenceId);
+    }
+
+    /**
+     * 异步生成条码，在线程池中请求给号服务，请求token在调用线程上读取后传入
+     *
+     * @param classPath   类路径
+     * @param params      表达式参数
+     * @param isolation   隔离码
+     * @param referenceId 关联id
+     * @return 条码
+     */
+    public CompletableFuture<String> genBarCodeAsync(String classPath,Map<String,String> params, String isolation, String referenceId){
+        BarCodeDto barCodeDto = buildBarCodeDto(classPath,params,isolation,referenceId);
+        String authToken = SerialUtils.getAuthToken();
+        return SerialExecutors.supplyAsync(() -> SerialUtils.getBarCodeFromService(transport,serialServiceProperty.getUrl(),
+                barCodeDto,authToken), executor);
+    }
+
+    /**
+     * 设置异步生成条码使用的线程池
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    private BarCodeDto buildBarCodeDto(String classPath,Map<String,String> params, String isolation, String referenceId){
         BarCodeDto barCodeDto = new BarCodeDto();
         barCodeDto.setClassPath(classPath);
         barCodeDto.setExpressionParam(params);
         barCodeDto.setReferenceId(referenceId);
         barCodeDto.setIsolation(isolation);
-        return SerialUtils.getBarCodeFromService(serialServiceProperty.getUrl(),barCodeDto);
+        return barCodeDto;
+    }
+
+    public List<String> genBarCodes(String classPath,List<String> referenceIds){
+        return this.genBarCodes(classPath,referenceIds,new HashMap<>(),SerialUtils.DEFAULT_ISOLATION);
+    }
+
+    public List<String> genBarCodes(Class clz,List<String> referenceIds,Map<String,String> params, String isolation){
+        return this.genBarCodes(clz.getName(),referenceIds,params,isolation);
+    }
+
+    /**
+     * 批量生成条码，一次请求预留所有编号并批量保存关联关系
+     *
+     * @param classPath    类路径
+     * @param referenceIds 关联id列表，返回的条码与之一一对应
+     * @param params       表达式参数
+     * @param isolation    隔离码
+     * @return 条码列表
+     */
+    public List<String> genBarCodes(String classPath,List<String> referenceIds,Map<String,String> params, String isolation){
+        BarCodeDto barCodeDto = new BarCodeDto();
+        barCodeDto.setClassPath(classPath);
+        barCodeDto.setExpressionParam(params);
+        barCodeDto.setReferenceIds(referenceIds);
+        barCodeDto.setIsolation(isolation);
+        return SerialUtils.getBarCodesFromService(transport,serialServiceProperty.getUrl(),barCodeDto);
     }
 }
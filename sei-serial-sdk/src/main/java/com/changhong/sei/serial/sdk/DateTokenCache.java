@@ -0,0 +1,163 @@
+package com.changhong.sei.serial.sdk;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 日期片段缓存
+ * <p>
+ * 表达式中的 ${YYYYMMDD} 等日期片段最多每毫秒、秒、分或天才变化一次，
+ * 每个格式缓存当前时间单位内的格式化结果和有效区间；取值时只比较时钟毫秒数并读取volatile引用，
+ * 跨过时间单位后由取值线程惰性刷新。时钟可注入，便于测试跨天、跨月
+ */
+public final class DateTokenCache {
+
+    private static final int CACHE_MAX_SIZE = 256;
+
+    private static final DateTokenCache DEFAULT = new DateTokenCache(Clock.systemDefaultZone());
+
+    private final Clock clock;
+
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+
+    public DateTokenCache(Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "clock不能为空");
+    }
+
+    /**
+     * 使用系统默认时区的缓存
+     */
+    public static DateTokenCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 当前时钟毫秒数，同一编号中的多个日期片段应使用同一个时间
+     */
+    public long millis() {
+        return clock.millis();
+    }
+
+    /**
+     * 按当前时间格式化
+     *
+     * @param pattern 日期格式，与 {@link DateTimeFormatter#ofPattern(String)} 相同
+     * @return 格式化结果
+     */
+    public String get(String pattern) {
+        return get(pattern, clock.millis());
+    }
+
+    /**
+     * 按指定时间格式化
+     *
+     * @param pattern 日期格式
+     * @param millis  时钟毫秒数，见 {@link #millis()}
+     * @return 格式化结果
+     */
+    public String get(String pattern, long millis) {
+        Token token = tokens.get(pattern);
+        if (Objects.isNull(token)) {
+            token = new Token(DateTimeFormatter.ofPattern(pattern), getTickUnit(pattern));
+            if (tokens.size() >= CACHE_MAX_SIZE) {
+                tokens.clear();
+            }
+            tokens.put(pattern, token);
+        }
+        return token.get(millis, clock.getZone());
+    }
+
+    /**
+     * 格式结果变化的最小时间单位；年、月、周、日等字段都在零点变化，按天缓存
+     */
+    static ChronoUnit getTickUnit(String pattern) {
+        ChronoUnit unit = ChronoUnit.DAYS;
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+                continue;
+            }
+            if (quoted || !Character.isLetter(c)) {
+                continue;
+            }
+            ChronoUnit current;
+            switch (c) {
+                case 'G': case 'u': case 'y': case 'Y': case 'M': case 'L': case 'Q': case 'q':
+                case 'w': case 'W': case 'D': case 'd': case 'F': case 'E': case 'e': case 'c':
+                    current = ChronoUnit.DAYS;
+                    break;
+                case 'a': case 'H': case 'h': case 'K': case 'k':
+                    current = ChronoUnit.HOURS;
+                    break;
+                case 'm':
+                    current = ChronoUnit.MINUTES;
+                    break;
+                case 's':
+                    current = ChronoUnit.SECONDS;
+                    break;
+                default:
+                    // 毫秒及其他字段不做区间缓存
+                    return ChronoUnit.MILLIS;
+            }
+            if (current.compareTo(unit) < 0) {
+                unit = current;
+            }
+        }
+        return unit;
+    }
+
+    private static final class Token {
+
+        private final DateTimeFormatter formatter;
+
+        private final ChronoUnit unit;
+
+        private volatile Entry entry;
+
+        private Token(DateTimeFormatter formatter, ChronoUnit unit) {
+            this.formatter = formatter;
+            this.unit = unit;
+        }
+
+        private String get(long millis, ZoneId zone) {
+            Entry current = entry;
+            if (Objects.nonNull(current) && millis >= current.from && millis < current.until) {
+                return current.value;
+            }
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+            LocalDateTime start = time.truncatedTo(unit);
+            // 按时区换算区间，夏令时切换时区间随之变化
+            long from = start.atZone(zone).toInstant().toEpochMilli();
+            long until = start.plus(1, unit).atZone(zone).toInstant().toEpochMilli();
+            String value = formatter.format(time);
+            if (from <= millis && millis < until) {
+                entry = new Entry(from, until, value);
+            }
+            return value;
+        }
+    }
+
+    private static final class Entry {
+
+        private final long from;
+
+        private final long until;
+
+        private final String value;
+
+        private Entry(long from, long until, String value) {
+            this.from = from;
+            this.until = until;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.changhong.sei.serial.sdk;
+
+import com.changhong.sei.serial.sdk.entity.CycleStrategy;
+import com.changhong.sei.serial.sdk.entity.IsolationRecordDto;
+import com.changhong.sei.serial.sdk.entity.SerialConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 内嵌给号器，用于单节点部署，不依赖给号服务、redis和数据库
+ * <p>
+ * 编号配置在本地注册，每个 类路径+隔离码+周期 一个内存计数器，无锁自增；
+ * 每次分配后把当前值写入内存映射的高水位日志，按固定间隔刷盘。
+ * 重启时从日志中的值再跳过一个安全余量开始，覆盖最后一次刷盘后已发放但未落盘的编号
+ */
+public class EmbeddedSerialAllocator implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedSerialAllocator.class);
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    public static final long DEFAULT_SAFETY_MARGIN = 1000L;
+
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000L;
+
+    private final Map<String, SerialConfig> configs = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 类路径+隔离码 当前的周期，周期变化时释放之前周期的日志槽位
+     */
+    private final Map<String, String> cycleDates = new ConcurrentHashMap<>();
+
+    private final SerialJournal journal;
+
+    private final long safetyMargin;
+
+    private final ScheduledExecutorService flusher;
+
+    public EmbeddedSerialAllocator(File journalFile) throws IOException {
+        this(journalFile, DEFAULT_CAPACITY, DEFAULT_SAFETY_MARGIN, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param journalFile   高水位日志文件
+     * @param capacity      新建日志文件时的计数器数量上限
+     * @param safetyMargin  重启时跳过的编号数量，应大于一个刷盘间隔内发放的编号数量
+     * @param flushInterval 刷盘间隔(毫秒)
+     */
+    public EmbeddedSerialAllocator(File journalFile, int capacity, long safetyMargin, long flushInterval) throws IOException {
+        this.journal = new SerialJournal(journalFile, capacity);
+        this.safetyMargin = safetyMargin;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sei-serial-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 注册编号配置，按实体类名匹配；内嵌模式下编号都在本地生成
+     */
+    public void register(SerialConfig config) {
+        Objects.requireNonNull(config.getEntityClassName(), "编号配置的实体类名不能为空");
+        config.setGenFlag(Boolean.FALSE);
+        configs.put(config.getEntityClassName(), config);
+    }
+
+    public void register(Collection<SerialConfig> configs) {
+        configs.forEach(this::register);
+    }
+
+    /**
+     * 按本地配置和当前周期构造配置记录
+     *
+     * @return 没有注册配置时返回null
+     */
+    IsolationRecordDto getRecord(String classPath, String isolation) {
+        SerialConfig config = configs.get(classPath);
+        if (Objects.isNull(config)) {
+            return null;
+        }
+        IsolationRecordDto recordDto = new IsolationRecordDto();
+        recordDto.setSerialNumberConfig(config);
+        recordDto.setIsolationCode(isolation);
+        recordDto.setDateString(SerialUtils.getDateStringByCycleStrategy(config.getCycleStrategy().name()));
+        return recordDto;
+    }
+
+    /**
+     * 分配count个连续编号，不循环(MAX_CYCLE)的配置超过序号位数时从1开始
+     *
+     * @return 分配的最后一个编号
+     */
+    long allocate(String classPath, IsolationRecordDto recordDto, String isolation, int count) {
+        SerialConfig config = recordDto.getSerialNumberConfig();
+        String cycleKey = classPath + ":" + isolation + ":";
+        Counter counter = counters.get(cycleKey + recordDto.getDateString());
+        if (Objects.isNull(counter)) {
+            counter = getOrCreateCounter(cycleKey, recordDto.getDateString(), config);
+        }
+        long max = getMaxSerial(config);
+        long value = counter.value.updateAndGet(current -> max > 0 && current + count > max ? count : current + count);
+        counter.persist(journal);
+        return value;
+    }
+
+    private synchronized Counter getOrCreateCounter(String cycleKey, String dateString, SerialConfig config) {
+        String currentDate = cycleDates.get(cycleKey);
+        if (Objects.nonNull(currentDate) && currentDate.compareTo(dateString) > 0) {
+            // 跨周期时其他线程已切换到新周期，按新周期分配
+            dateString = currentDate;
+        }
+        String key = cycleKey + dateString;
+        Counter counter = counters.get(key);
+        if (Objects.nonNull(counter)) {
+            return counter;
+        }
+        // 释放之前周期(包括重启前)的计数器和日志槽位
+        String date = dateString;
+        Predicate<String> outdated = journalKey -> journalKey.startsWith(cycleKey)
+                && journalKey.substring(cycleKey.length()).compareTo(date) < 0;
+        counters.entrySet().removeIf(entry -> outdated.test(entry.getKey()) && entry.getValue().release());
+        journal.removeIf(outdated);
+        cycleDates.put(cycleKey, dateString);
+
+        Long persisted = journal.get(key);
+        long start;
+        if (Objects.nonNull(persisted)) {
+            start = persisted + safetyMargin;
+            long max = getMaxSerial(config);
+            if (max > 0 && start > max) {
+                // 跳过后超过最大编号时停在最大编号，下一次分配按正常的循环从1开始；
+                // 重启前的最后一个刷盘间隔内已循环发放的小编号会再次发放，与循环本身会重复发放之前一轮的编号一致
+                start = max;
+            }
+            log.info("编号计数器 {} 从日志恢复，日志值 {}，跳过后从 {} 开始", key, persisted, start + 1);
+        } else {
+            start = Objects.isNull(config.getInitialSerial()) ? 0L : config.getInitialSerial() - 1;
+        }
+        counter = new Counter(journal.put(key, start), start);
+        counters.put(key, counter);
+        return counter;
+    }
+
+    private static long getMaxSerial(SerialConfig config) {
+        return config.getCycleStrategy() == CycleStrategy.MAX_CYCLE
+                ? SerialCounterScript.getMaxSerial(SerialUtils.getSerialItem(config.getExpressionConfig())) : 0L;
+    }
+
+    /**
+     * 把日志刷到磁盘
+     */
+    public void flush() {
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            log.error("编号日志刷盘出错", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        journal.close();
+    }
+
+    private static final class Counter {
+
+        private final int slot;
+
+        private final AtomicLong value;
+
+        private boolean released;
+
+        private Counter(int slot, long value) {
+            this.slot = slot;
+            this.value = new AtomicLong(value);
+        }
+
+        /**
+         * 在锁内读取最新值再写入，最后一次写入的总是最新值
+         */
+        private synchronized void persist(SerialJournal journal) {
+            if (!released) {
+                journal.write(slot, value.get());
+            }
+        }
+
+        /**
+         * 释放后不再写入，槽位可以分配给其他计数器
+         */
+        private synchronized boolean release() {
+            released = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.changhong.sei.serial.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的编号表达式模板
+ * <p>
+ * 表达式只解析一次，拆分为文本、日期、参数和序号片段，按表达式缓存；
+ * 生成编号时按顺序写入预估长度的StringBuilder，不再重复做正则匹配和字符串替换；
+ * 日期片段从 {@link DateTokenCache} 读取，不再每次格式化
+ */
+public final class ExpressionTemplate {
+
+    private static final int CACHE_MAX_SIZE = 1024;
+
+    private static final Map<String, ExpressionTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private static final String PARAM_PREFIX = "${";
+
+    private static final String SERIAL_PREFIX = "#{";
+
+    private static final char SUFFIX = '}';
+
+    /**
+     * 没有序号片段时的序号表达式，与 {@link SerialUtils#getSerialItem(String)} 保持一致
+     */
+    private static final String NO_SERIAL_ITEM = "0";
+
+    private final String expression;
+
+    private final Part[] parts;
+
+    private final String serialItem;
+
+    private final int estimatedLength;
+
+    private ExpressionTemplate(String expression, Part[] parts, String serialItem, int estimatedLength) {
+        this.expression = expression;
+        this.parts = parts;
+        this.serialItem = serialItem;
+        this.estimatedLength = estimatedLength;
+    }
+
+    /**
+     * 获取表达式对应的模板，已编译的直接从缓存获取
+     *
+     * @param expression 编号表达式
+     * @return 模板
+     */
+    public static ExpressionTemplate compile(String expression) {
+        ExpressionTemplate template = CACHE.get(expression);
+        if (Objects.isNull(template)) {
+            template = parse(expression);
+            if (CACHE.size() >= CACHE_MAX_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.put(expression, template);
+        }
+        return template;
+    }
+
+    /**
+     * 生成编号
+     *
+     * @param serial 序号
+     * @param param  表达式参数
+     * @return 编号
+     */
+    public String render(long serial, Map<String, String> param) {
+        return render(serial, param, DateTokenCache.getDefault());
+    }
+
+    /**
+     * 按指定的日期片段缓存生成编号
+     *
+     * @param serial     序号
+     * @param param      表达式参数
+     * @param dateTokens 日期片段缓存
+     * @return 编号
+     */
+    public String render(long serial, Map<String, String> param, DateTokenCache dateTokens) {
+        StringBuilder builder = new StringBuilder(estimatedLength);
+        renderTo(builder, serial, param, dateTokens);
+        return builder.toString();
+    }
+
+    /**
+     * 生成编号并写入builder
+     *
+     * @param builder 目标
+     * @param serial  序号
+     * @param param   表达式参数
+     */
+    public void renderTo(StringBuilder builder, long serial, Map<String, String> param) {
+        renderTo(builder, serial, param, DateTokenCache.getDefault());
+    }
+
+    /**
+     * 生成编号并写入builder，同一编号中的日期片段使用同一时间
+     *
+     * @param builder    目标
+     * @param serial     序号
+     * @param param      表达式参数
+     * @param dateTokens 日期片段缓存
+     */
+    public void renderTo(StringBuilder builder, long serial, Map<String, String> param, DateTokenCache dateTokens) {
+        long now = -1L;
+        boolean hasParam = Objects.nonNull(param) && !param.isEmpty();
+        for (Part part : parts) {
+            switch (part.type) {
+                case LITERAL:
+                    builder.append(part.text);
+                    break;
+                case DATE:
+                    if (now < 0) {
+                        now = dateTokens.millis();
+                    }
+                    builder.append(dateTokens.get(part.text, now));
+                    break;
+                case PARAM:
+                    if (hasParam) {
+                        builder.append(param.get(part.text));
+                    } else {
+                        builder.append(part.text);
+                    }
+                    break;
+                default:
+                    SerialNumberFormatter.appendTo(builder, serial, part.width);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 当前周期内所有编号共有的前缀，用于按前缀校准当前序号
+     * <p>
+     * 从表达式开头取到序号为止；日期只保留到周期的精度(如按月循环时只保留yyyyMM)，
+     * 遇到参数或超出周期精度的日期时截止，保证前缀覆盖周期内的全部编号
+     *
+     * @param cycleDateLength 周期日期的长度，按年4、按月6、按天8，不循环时为0
+     * @return 前缀，可能为空字符串
+     */
+    public String getCalibrationPrefix(int cycleDateLength) {
+        StringBuilder builder = new StringBuilder(estimatedLength);
+        DateTokenCache dateTokens = DateTokenCache.getDefault();
+        long now = dateTokens.millis();
+        for (Part part : parts) {
+            if (part.type == PartType.LITERAL) {
+                builder.append(part.text);
+                continue;
+            }
+            if (part.type == PartType.DATE && cycleDateLength > 0) {
+                String date = dateTokens.get(part.text, now);
+                if (date.length() <= cycleDateLength) {
+                    builder.append(date);
+                    continue;
+                }
+                builder.append(date, 0, cycleDateLength);
+            }
+            break;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 序号表达式，即 #{...} 中的内容，没有序号时为 "0"
+     */
+    public String getSerialItem() {
+        return serialItem;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    private static ExpressionTemplate parse(String expression) {
+        List<Part> parts = new ArrayList<>();
+        // 序号表达式取第一个 #{...} 的内容，即使它位于未闭合的 ${ 之中，与按正则取序号表达式的结果一致
+        int serialStart = expression.indexOf(SERIAL_PREFIX);
+        int serialEnd = serialStart < 0 ? -1 : expression.indexOf(SUFFIX, serialStart + 2);
+        String serialItem = serialEnd < 0 ? null : expression.substring(serialStart + 2, serialEnd);
+        StringBuilder literal = new StringBuilder();
+        int estimatedLength = 0;
+        int index = 0;
+        while (index < expression.length()) {
+            boolean isParam = expression.startsWith(PARAM_PREFIX, index);
+            boolean isSerial = !isParam && expression.startsWith(SERIAL_PREFIX, index);
+            int end = isParam || isSerial ? expression.indexOf(SUFFIX, index + 2) : -1;
+            if (end < 0) {
+                literal.append(expression.charAt(index++));
+                continue;
+            }
+            String item = expression.substring(index + 2, end);
+            Part part = null;
+            if (isParam) {
+                part = SerialUtils.isDateParam(item) ? Part.date(item) : Part.param(item);
+            } else if (item.equals(serialItem)) {
+                part = Part.serial(item.length());
+            }
+            if (Objects.isNull(part)) {
+                // 非序号的 #{...} 原样保留
+                literal.append(expression, index, end + 1);
+            } else {
+                if (literal.length() > 0) {
+                    parts.add(Part.literal(literal.toString()));
+                    estimatedLength += literal.length();
+                    literal.setLength(0);
+                }
+                parts.add(part);
+                estimatedLength += Math.max(item.length(), 1) + 4;
+            }
+            index = end + 1;
+        }
+        if (literal.length() > 0) {
+            parts.add(Part.literal(literal.toString()));
+            estimatedLength += literal.length();
+        }
+        return new ExpressionTemplate(expression, parts.toArray(new Part[0]),
+                Objects.isNull(serialItem) ? NO_SERIAL_ITEM : serialItem, estimatedLength);
+    }
+
+    private enum PartType {
+        LITERAL, DATE, PARAM, SERIAL
+    }
+
+    private static final class Part {
+
+        private final PartType type;
+
+        private final String text;
+
+        private final int width;
+
+        private Part(PartType type, String text, int width) {
+            this.type = type;
+            this.text = text;
+            this.width = width;
+        }
+
+        static Part literal(String text) {
+            return new Part(PartType.LITERAL, text, 0);
+        }
+
+        static Part date(String pattern) {
+            return new Part(PartType.DATE, pattern, 0);
+        }
+
+        static Part param(String name) {
+            return new Part(PartType.PARAM, name, 0);
+        }
+
+        static Part serial(int width) {
+            return new Part(PartType.SERIAL, null, width);
+        }
+    }
+}
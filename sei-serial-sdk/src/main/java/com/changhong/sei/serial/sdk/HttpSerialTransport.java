@@ -0,0 +1,151 @@
+package com.changhong.sei.serial.sdk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 基于JDK HttpURLConnection的默认传输实现
+ * <p>
+ * 不调用disconnect，响应流读完并关闭后连接归还JDK的keep-alive连接池，后续请求复用同一socket，
+ * 每个地址保留的空闲连接数由系统属性 http.maxConnections 控制(默认5)；
+ * 响应直接从输入流解析为对象，不再按行拼接字符串
+ */
+public class HttpSerialTransport implements SerialTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpSerialTransport.class);
+
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+    public static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    private static final String HEADER_TOKEN_KEY = "x-authorization";
+
+    private static final String HEADER_TOKEN_KEY_3 = "authorization";
+
+    private static final String USER_AGENT = "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.1;SV1)";
+
+    private static final int BUFFER_SIZE = 512;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    public HttpSerialTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * @param connectTimeout 连接超时(毫秒)
+     * @param readTimeout    读取超时(毫秒)
+     */
+    public HttpSerialTransport(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public <T> T execute(String url, String method, Object body, Class<T> responseType, String authToken) {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setRequestMethod(method);
+            conn.setConnectTimeout(connectTimeout);
+            conn.setReadTimeout(readTimeout);
+            conn.setUseCaches(false);
+            conn.setRequestProperty("Accept", "application/json");
+            conn.setRequestProperty("user-agent", USER_AGENT);
+            if (StringUtils.isNotBlank(authToken)) {
+                conn.setRequestProperty(HEADER_TOKEN_KEY, authToken);
+                conn.setRequestProperty(HEADER_TOKEN_KEY_3, authToken);
+            }
+            if (Objects.nonNull(body)) {
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+                try (OutputStream out = conn.getOutputStream()) {
+                    OBJECT_MAPPER.writeValue(out, body);
+                }
+            }
+            int status = conn.getResponseCode();
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                log.error("给号服务请求 {} 返回状态码 {}", url, status);
+                drainAndClose(conn.getErrorStream());
+                return null;
+            }
+            try (InputStream in = conn.getInputStream()) {
+                return readBody(in, responseType);
+            }
+        } catch (Exception e) {
+            log.error("给号服务发送请求出现异常 {}", url, e);
+            if (Objects.nonNull(conn)) {
+                // 读取错误响应使连接可以继续复用
+                drainAndClose(conn.getErrorStream());
+            }
+            return null;
+        }
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    private static <T> T readBody(InputStream in, Class<T> responseType) throws IOException {
+        if (String.class == responseType) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+            }
+            return responseType.cast(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+        T result = null;
+        try {
+            result = OBJECT_MAPPER.readValue(in, responseType);
+        } catch (IOException e) {
+            // 空响应或格式错误时按获取失败处理
+            log.error("解析给号服务响应出错", e);
+        }
+        // json之后可能还有空白字符，读完后连接才能复用
+        drain(in);
+        return result;
+    }
+
+    private static void drainAndClose(InputStream in) {
+        if (Objects.isNull(in)) {
+            return;
+        }
+        try (InputStream stream = in) {
+            drain(stream);
+        } catch (IOException e) {
+            log.debug("读取给号服务错误响应出错", e);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (in.read(buffer) != -1) {
+            // 丢弃剩余内容
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.changhong.sei.serial.sdk;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于micrometer的给号监控指标
+ * <ul>
+ *     <li>sei.serial.config.fetch：从给号服务获取配置的耗时，标签 config、outcome</li>
+ *     <li>sei.serial.redis.counter：redis计数器脚本的耗时，标签 operation</li>
+ *     <li>sei.serial.calibration：数据库校准的耗时，标签 config、result(hit/miss)</li>
+ *     <li>sei.serial.cycle.wrap：按最大编号循环的次数，标签 config</li>
+ *     <li>sei.serial.issued：发放的编号数量，标签 config、tenant、isolation</li>
+ * </ul>
+ * 标签值按 {@link SerialMetricTags} 限制数量；指标在首次使用时注册后缓存，之后只是无锁的哈希查找
+ */
+public class MicrometerSerialMetrics implements SerialMetrics {
+
+    public static final int DEFAULT_MAX_TAG_VALUES = 100;
+
+    private static final String TAG_CONFIG = "config";
+
+    private final MeterRegistry registry;
+
+    private final SerialMetricTags configs;
+
+    private final SerialMetricTags tenants;
+
+    private final SerialMetricTags isolations;
+
+    private final Map<String, Timer> fetchSuccessTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> fetchFailureTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> counterTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> calibrationHitTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> calibrationMissTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> wrapCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 类路径 -> 租户 -> 隔离码 -> 计数
+     */
+    private final Map<String, Map<String, Map<String, Counter>>> issuedCounters = new ConcurrentHashMap<>();
+
+    public MicrometerSerialMetrics(MeterRegistry registry) {
+        this(registry, DEFAULT_MAX_TAG_VALUES);
+    }
+
+    /**
+     * @param registry     指标注册表
+     * @param maxTagValues 每个标签(类路径、租户、隔离码)最多保留的取值数量
+     */
+    public MicrometerSerialMetrics(MeterRegistry registry, int maxTagValues) {
+        this.registry = registry;
+        this.configs = new SerialMetricTags(maxTagValues);
+        this.tenants = new SerialMetricTags(maxTagValues);
+        this.isolations = new SerialMetricTags(maxTagValues);
+    }
+
+    @Override
+    public void recordConfigFetch(String classPath, long nanos, boolean success) {
+        String config = configs.get(classPath);
+        Map<String, Timer> timers = success ? fetchSuccessTimers : fetchFailureTimers;
+        Timer timer = timers.get(config);
+        if (Objects.isNull(timer)) {
+            timer = timers.computeIfAbsent(config, key -> Timer.builder("sei.serial.config.fetch")
+                    .description("从给号服务获取编号配置的耗时")
+                    .tag(TAG_CONFIG, key)
+                    .tag("outcome", success ? "success" : "failure")
+                    .register(registry));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCounter(String operation, long nanos) {
+        Timer timer = counterTimers.get(operation);
+        if (Objects.isNull(timer)) {
+            timer = counterTimers.computeIfAbsent(operation, key -> Timer.builder("sei.serial.redis.counter")
+                    .description("redis计数器脚本的耗时")
+                    .tag("operation", key)
+                    .register(registry));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCalibration(String classPath, long nanos, boolean hit) {
+        String config = configs.get(classPath);
+        Map<String, Timer> timers = hit ? calibrationHitTimers : calibrationMissTimers;
+        Timer timer = timers.get(config);
+        if (Objects.isNull(timer)) {
+            timer = timers.computeIfAbsent(config, key -> Timer.builder("sei.serial.calibration")
+                    .description("从数据库校准当前编号的耗时")
+                    .tag(TAG_CONFIG, key)
+                    .tag("result", hit ? "hit" : "miss")
+                    .register(registry));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordWrap(String classPath) {
+        String config = configs.get(classPath);
+        Counter counter = wrapCounters.get(config);
+        if (Objects.isNull(counter)) {
+            counter = wrapCounters.computeIfAbsent(config, key -> Counter.builder("sei.serial.cycle.wrap")
+                    .description("按最大编号循环的次数")
+                    .tag(TAG_CONFIG, key)
+                    .register(registry));
+        }
+        counter.increment();
+    }
+
+    @Override
+    public void recordIssued(String classPath, String tenantCode, String isolation, int count) {
+        String config = configs.get(classPath);
+        String tenant = tenants.get(tenantCode);
+        String isolationTag = isolations.get(isolation);
+        Map<String, Map<String, Counter>> byTenant = issuedCounters.get(config);
+        if (Objects.isNull(byTenant)) {
+            byTenant = issuedCounters.computeIfAbsent(config, key -> new ConcurrentHashMap<>());
+        }
+        Map<String, Counter> byIsolation = byTenant.get(tenant);
+        if (Objects.isNull(byIsolation)) {
+            byIsolation = byTenant.computeIfAbsent(tenant, key -> new ConcurrentHashMap<>());
+        }
+        Counter counter = byIsolation.get(isolationTag);
+        if (Objects.isNull(counter)) {
+            counter = byIsolation.computeIfAbsent(isolationTag, key -> Counter.builder("sei.serial.issued")
+                    .description("发放的编号数量")
+                    .tag(TAG_CONFIG, config)
+                    .tag("tenant", tenant)
+                    .tag("isolation", key)
+                    .register(registry));
+        }
+        counter.increment(count);
+    }
+}
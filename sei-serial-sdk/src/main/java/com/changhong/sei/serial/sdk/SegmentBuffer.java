@@ -0,0 +1,195 @@
+package com.changhong.sei.serial.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 双号段缓冲，参考Leaf-segment：当前号段使用超过80%时异步预取下一号段，
+ * 当前号段用完后直接切换，调用方基本不会阻塞在网络请求上
+ */
+public class SegmentBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentBuffer.class);
+
+    /**
+     * 剩余比例低于该值时预取下一号段
+     */
+    private static final double PREFETCH_IDLE_RATIO = 0.2;
+
+    /**
+     * 等待异步预取完成的最长时间
+     */
+    private static final long PREFETCH_WAIT_MILLIS = 3000L;
+
+    /**
+     * 号段加载器
+     */
+    public interface SegmentLoader {
+
+        /**
+         * 租用一个号段
+         *
+         * @param step      号段大小
+         * @param authToken 请求token
+         * @return 号段，获取失败时返回null
+         */
+        SerialSegment load(int step, String authToken);
+    }
+
+    private final String key;
+
+    private final int step;
+
+    private final SegmentLoader loader;
+
+    private final Executor executor;
+
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+
+    private volatile SerialSegment current;
+
+    private volatile SerialSegment next;
+
+    public SegmentBuffer(String key, int step, SegmentLoader loader, Executor executor) {
+        this.key = key;
+        this.step = step;
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    /**
+     * 获取当前可用号段，必要时同步加载，并在剩余不足时触发异步预取
+     *
+     * @param authToken 请求token
+     * @return 当前号段，加载失败时返回null
+     */
+    public SerialSegment acquire(String authToken) {
+        SerialSegment segment = current;
+        if (Objects.isNull(segment) || segment.isExpired()) {
+            synchronized (this) {
+                segment = current;
+                if (Objects.isNull(segment) || segment.isExpired()) {
+                    segment = switchSegment(segment, authToken);
+                }
+            }
+            if (Objects.isNull(segment)) {
+                return null;
+            }
+        }
+        prefetchIfNeeded(segment, authToken);
+        return segment;
+    }
+
+    /**
+     * 获取当前可用号段，不加载也不等待，供异步给号在调用线程上直接分配
+     *
+     * @param authToken 请求token
+     * @return 当前号段，没有可用号段时返回null
+     */
+    public SerialSegment tryAcquire(String authToken) {
+        SerialSegment segment = current;
+        if (Objects.nonNull(segment) && segment.getIdle() == 0 && Objects.nonNull(next)) {
+            // 预取的号段已就绪，切换时不需要加载
+            exhausted(segment, authToken);
+            segment = current;
+        }
+        if (Objects.isNull(segment) || segment.getIdle() == 0 || segment.isExpired()) {
+            return null;
+        }
+        prefetchIfNeeded(segment, authToken);
+        return segment;
+    }
+
+    private void prefetchIfNeeded(SerialSegment segment, String authToken) {
+        if (Objects.isNull(next) && segment.getIdle() <= step * PREFETCH_IDLE_RATIO
+                && loading.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> prefetch(authToken));
+            } catch (RejectedExecutionException e) {
+                log.warn("号段 {} 预取任务提交失败", key, e);
+                loading.set(false);
+            }
+        }
+    }
+
+    /**
+     * 当前号段已用完，切换到下一号段
+     *
+     * @param segment   已用完的号段
+     * @param authToken 请求token
+     */
+    public synchronized void exhausted(SerialSegment segment, String authToken) {
+        if (current == segment) {
+            switchSegment(segment, authToken);
+        }
+    }
+
+    /**
+     * 清空缓冲，下次获取时重新租用号段
+     */
+    public synchronized void clear() {
+        current = null;
+        next = null;
+    }
+
+    /**
+     * 切换到预取的号段，预取正在进行时等待其完成，没有可用号段时同步加载；需持有锁调用
+     *
+     * @param expected  调用方看到的当前号段
+     * @param authToken 请求token
+     * @return 切换后的当前号段
+     */
+    private SerialSegment switchSegment(SerialSegment expected, String authToken) {
+        long deadline = System.currentTimeMillis() + PREFETCH_WAIT_MILLIS;
+        while (Objects.isNull(next) && loading.get()) {
+            long waitMillis = deadline - System.currentTimeMillis();
+            if (waitMillis <= 0) {
+                break;
+            }
+            try {
+                wait(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (current != expected) {
+                // 等待期间(wait释放了锁)已被其他线程切换
+                return current;
+            }
+        }
+        if (current != expected) {
+            return current;
+        }
+        SerialSegment segment = next;
+        next = null;
+        if (Objects.isNull(segment) || segment.isExpired()) {
+            segment = loader.load(step, authToken);
+            log.debug("同步加载号段 {} : {}", key, segment);
+        }
+        current = segment;
+        return segment;
+    }
+
+    private void prefetch(String authToken) {
+        SerialSegment segment = null;
+        try {
+            segment = loader.load(step, authToken);
+            log.debug("预取号段 {} : {}", key, segment);
+        } catch (Exception e) {
+            log.error("预取号段 {} 出错", key, e);
+        } finally {
+            synchronized (this) {
+                if (Objects.nonNull(segment) && Objects.isNull(next)) {
+                    next = segment;
+                }
+                loading.set(false);
+                notifyAll();
+            }
+        }
+    }
+}
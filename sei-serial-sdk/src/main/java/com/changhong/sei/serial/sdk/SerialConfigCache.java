@@ -0,0 +1,201 @@
+package com.changhong.sei.serial.sdk;
+
+import com.changhong.sei.serial.sdk.entity.IsolationRecordDto;
+import com.changhong.sei.serial.sdk.entity.SerialConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * SDK本地编号配置缓存，按 类路径:隔离码:租户 缓存
+ * <p>
+ * 只缓存不在服务端生成编号的配置(服务端生成编号时每次请求都会发号，不能复用)。
+ * 超过刷新时间的配置先返回旧值并异步刷新，超过过期时间或周期切换后同步重新获取；
+ * 配置变更时由给号服务通过redis发布消息，见 {@link SerialConfigChangeSubscriber}；
+ * 同一配置并发的同步获取只向给号服务发送一次请求
+ */
+public class SerialConfigCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SerialConfigCache.class);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 正在同步获取的配置
+     */
+    private final Map<String, CompletableFuture<IsolationRecordDto>> loading = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final long refreshMillis;
+
+    private final long expireMillis;
+
+    private final Executor executor;
+
+    /**
+     * @param maxSize       最大缓存数量
+     * @param refreshMillis 超过该时间后异步刷新
+     * @param expireMillis  超过该时间后同步重新获取
+     * @param executor      异步刷新使用的线程池
+     */
+    public SerialConfigCache(int maxSize, long refreshMillis, long expireMillis, Executor executor) {
+        this.maxSize = maxSize;
+        this.refreshMillis = Math.min(refreshMillis, expireMillis);
+        this.expireMillis = expireMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * 获取配置
+     *
+     * @param key    缓存key
+     * @param loader 从给号服务获取配置
+     * @return 配置，获取失败时返回null
+     */
+    public IsolationRecordDto get(String key, Supplier<IsolationRecordDto> loader) {
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (Objects.nonNull(entry) && SerialUtils.isCycleExpired(entry.recordDto)) {
+            // 周期已切换，缓存的日期串已失效
+            entries.remove(key, entry);
+            entry = null;
+        }
+        if (Objects.nonNull(entry)) {
+            long age = now - entry.loadTime;
+            if (age < refreshMillis) {
+                return entry.recordDto;
+            }
+            if (age < expireMillis) {
+                refreshAsync(key, entry, loader);
+                return entry.recordDto;
+            }
+        }
+        IsolationRecordDto recordDto = load(key, loader);
+        if (Objects.isNull(recordDto)) {
+            // 获取失败时使用过期的配置
+            return Objects.nonNull(entry) ? entry.recordDto : null;
+        }
+        return recordDto;
+    }
+
+    /**
+     * 配置变更时清除该类路径下的所有缓存
+     *
+     * @param classPath 类路径
+     */
+    public void invalidate(String classPath) {
+        String prefix = classPath + ":";
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+        log.info("清除 {} 的本地编号配置缓存", classPath);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 同步获取配置，同一key并发的请求合并为一次，其余线程等待其结果
+     */
+    private IsolationRecordDto load(String key, Supplier<IsolationRecordDto> loader) {
+        CompletableFuture<IsolationRecordDto> future = new CompletableFuture<>();
+        CompletableFuture<IsolationRecordDto> inFlight = loading.putIfAbsent(key, future);
+        if (Objects.nonNull(inFlight)) {
+            IsolationRecordDto recordDto = inFlight.join();
+            if (Objects.isNull(recordDto) || isCacheable(recordDto)) {
+                return recordDto;
+            }
+            // 服务端生成编号的配置每次请求都会发号，不能共用其他线程的结果
+            return loader.get();
+        }
+        IsolationRecordDto recordDto = null;
+        try {
+            recordDto = loader.get();
+            if (Objects.nonNull(recordDto)) {
+                put(key, recordDto);
+            }
+            return recordDto;
+        } finally {
+            loading.remove(key, future);
+            future.complete(recordDto);
+        }
+    }
+
+    private void refreshAsync(String key, Entry entry, Supplier<IsolationRecordDto> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    IsolationRecordDto recordDto = loader.get();
+                    if (Objects.nonNull(recordDto)) {
+                        put(key, recordDto);
+                    }
+                } catch (Exception e) {
+                    log.error("刷新编号配置 {} 出错", key, e);
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void put(String key, IsolationRecordDto recordDto) {
+        if (!isCacheable(recordDto)) {
+            entries.remove(key);
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            evictOldest();
+        }
+        entries.put(key, new Entry(recordDto, System.currentTimeMillis()));
+    }
+
+    private static boolean isCacheable(IsolationRecordDto recordDto) {
+        SerialConfig config = recordDto.getSerialNumberConfig();
+        return Objects.nonNull(config) && !Boolean.TRUE.equals(config.getGenFlag());
+    }
+
+    private void evictOldest() {
+        String oldestKey = null;
+        long oldestTime = Long.MAX_VALUE;
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            if (item.getValue().loadTime < oldestTime) {
+                oldestTime = item.getValue().loadTime;
+                oldestKey = item.getKey();
+            }
+        }
+        if (Objects.nonNull(oldestKey)) {
+            entries.remove(oldestKey);
+        }
+    }
+
+    private static final class Entry {
+
+        private final IsolationRecordDto recordDto;
+
+        private final long loadTime;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        private Entry(IsolationRecordDto recordDto, long loadTime) {
+            this.recordDto = recordDto;
+            this.loadTime = loadTime;
+        }
+    }
+}
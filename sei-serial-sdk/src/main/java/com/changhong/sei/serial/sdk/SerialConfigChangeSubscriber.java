@@ -0,0 +1,38 @@
+package com.changhong.sei.serial.sdk;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订阅给号服务发布的编号配置变更消息，清除SDK本地配置缓存
+ * <p>
+ * 消息内容为变更配置的类路径，{@link SerialUtils#CONFIG_CHANGE_ALL} 表示清除全部
+ */
+public class SerialConfigChangeSubscriber implements InitializingBean, DisposableBean {
+
+    private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+    public SerialConfigChangeSubscriber(RedisConnectionFactory connectionFactory, SerialService serialService) {
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String classPath = new String(message.getBody(), StandardCharsets.UTF_8);
+            serialService.invalidateConfig(classPath);
+        }, new ChannelTopic(SerialUtils.CONFIG_CHANGE_CHANNEL));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        container.destroy();
+    }
+}
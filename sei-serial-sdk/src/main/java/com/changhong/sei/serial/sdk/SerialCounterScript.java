@@ -0,0 +1,476 @@
+package com.changhong.sei.serial.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 编号计数器lua脚本，SDK和给号服务共用
+ * <p>
+ * 在一次往返中原子地完成：key不存在时按初始值初始化并设置周期过期时间、自增、按最大值循环；
+ * 通过EVALSHA执行，redis中没有缓存脚本时自动改用EVAL；分片申请见 {@link SerialShards}
+ */
+public final class SerialCounterScript {
+
+    private static final Logger log = LoggerFactory.getLogger(SerialCounterScript.class);
+
+    private static final long STATUS_ABSENT = -1L;
+
+    private static final long STATUS_INITIALIZED = 1L;
+
+    private static final long STATUS_WRAPPED = 2L;
+
+    private static final long STATUS_REUSED = 4L;
+
+    /**
+     * KEYS[1] 当前值key
+     * ARGV[1] 数量，ARGV[2] 初始值(为空时不初始化)，ARGV[3] 过期时间(毫秒，小于等于0时不过期)，
+     * ARGV[4] 最大值(小于等于0时不循环)
+     * 返回 {最后一个编号, 状态}，状态为-1时key不存在且没有初始值，否则按位表示：1 初始化了key，2 超过最大值后从1开始
+     */
+    private static final String SCRIPT =
+            "local status = 0\n" +
+            "local value\n" +
+            counterScript() +
+            "return {value, status}\n";
+
+    /**
+     * 连续编号的预留：先把已过期的预留放回归还集合，再优先取归还集合中最小的编号，没有时按计数器申请
+     * KEYS[1] 当前值key，KEYS[2] 归还的编号(有序集合，分值为编号)，KEYS[3] 预留的编号(有序集合，成员为 编号:令牌，分值为过期时间)
+     * ARGV[1]-ARGV[4] 同计数器脚本，ARGV[5] 当前时间(毫秒)，ARGV[6] 预留时长(毫秒，小于等于0时直接发放不预留)，
+     * ARGV[7] 令牌，ARGV[8] 每次最多回收的过期预留数量
+     * 返回 {编号, 状态}，状态在计数器脚本的基础上增加：4 取自归还的编号
+     */
+    private static final String RESERVE_SCRIPT =
+            "local now = tonumber(ARGV[5])\n" +
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[3], '-inf', now, 'LIMIT', 0, tonumber(ARGV[8]))\n" +
+            "for _, member in ipairs(expired) do\n" +
+            "  redis.call('ZREM', KEYS[3], member)\n" +
+            "  local number = string.match(member, '^%d+')\n" +
+            "  redis.call('ZADD', KEYS[2], number, number)\n" +
+            "end\n" +
+            "local status = 0\n" +
+            "local value\n" +
+            "local returned = redis.call('ZRANGE', KEYS[2], 0, 0)\n" +
+            "if #returned > 0 then\n" +
+            "  redis.call('ZREM', KEYS[2], returned[1])\n" +
+            "  value = tonumber(returned[1])\n" +
+            "  status = " + STATUS_REUSED + "\n" +
+            "else\n" +
+            counterScript() +
+            "end\n" +
+            "if tonumber(ARGV[6]) > 0 then\n" +
+            "  redis.call('ZADD', KEYS[3], now + tonumber(ARGV[6]), string.format('%.0f', value) .. ':' .. ARGV[7])\n" +
+            "end\n" +
+            "local ttl = redis.call('PTTL', KEYS[1])\n" +
+            "if ttl > 0 then\n" +
+            "  redis.call('PEXPIRE', KEYS[2], ttl)\n" +
+            "  redis.call('PEXPIRE', KEYS[3], ttl)\n" +
+            "end\n" +
+            "return {value, status}\n";
+
+    /**
+     * 确认预留：预留还在时删除预留；预留已过期但回收的编号还没有被再次发放时从归还集合中取回
+     * KEYS[1] 归还的编号，KEYS[2] 预留的编号；ARGV[1] 预留成员，ARGV[2] 编号
+     */
+    private static final RedisScript<Long> COMMIT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZREM', KEYS[2], ARGV[1]) == 1 then return 1 end\n" +
+            "return redis.call('ZREM', KEYS[1], ARGV[2])\n", Long.class);
+
+    /**
+     * 撤销预留：预留还在时把编号放入归还集合，过期时间与预留集合一致
+     * KEYS[1] 归还的编号，KEYS[2] 预留的编号；ARGV[1] 预留成员，ARGV[2] 编号
+     */
+    private static final RedisScript<Long> ROLLBACK_SCRIPT = new DefaultRedisScript<>(
+            "local ttl = redis.call('PTTL', KEYS[2])\n" +
+            "if redis.call('ZREM', KEYS[2], ARGV[1]) == 0 then return 0 end\n" +
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[2])\n" +
+            "if ttl > 0 then redis.call('PEXPIRE', KEYS[1], ttl) end\n" +
+            "return 1\n", Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REDIS_SCRIPT = new DefaultRedisScript<>(SCRIPT, List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RESERVE_REDIS_SCRIPT = new DefaultRedisScript<>(RESERVE_SCRIPT, List.class);
+
+    private static final String RETURNED_KEY_SUFFIX = ":returned";
+
+    private static final String RESERVED_KEY_SUFFIX = ":reserved";
+
+    /**
+     * 每次预留时最多回收的过期预留数量，限制单次脚本的开销
+     */
+    private static final int RECLAIM_LIMIT = 16;
+
+    /**
+     * long能表示的最大序号位数
+     */
+    private static final int MAX_SERIAL_WIDTH = 18;
+
+    private SerialCounterScript() {
+    }
+
+    /**
+     * 申请count个连续编号
+     *
+     * @param stringRedisTemplate redis
+     * @param key                 当前值key
+     * @param count               数量
+     * @param seed                key不存在时的初始值(已发放的最后一个编号)，为null时不初始化
+     * @param expireMillis        初始化时设置的过期时间，小于等于0时不过期
+     * @param max                 最大编号，超过时从1开始，小于等于0时不循环
+     * @return 结果
+     */
+    public static Result increment(StringRedisTemplate stringRedisTemplate, String key, int count, Long seed,
+                                   long expireMillis, long max) {
+        return increment(stringRedisTemplate, new Increment(key, count, seed, expireMillis, max));
+    }
+
+    /**
+     * 按申请参数申请编号
+     */
+    public static Result increment(StringRedisTemplate stringRedisTemplate, Increment increment) {
+        List<?> result = stringRedisTemplate.execute(REDIS_SCRIPT, Collections.singletonList(increment.key),
+                (Object[]) increment.getArgs());
+        return Result.of(result, increment);
+    }
+
+    /**
+     * 在一个流水线中申请多个计数器的编号
+     * <p>
+     * 流水线中使用EVALSHA，redis中没有缓存脚本时先SCRIPT LOAD再重试一次；
+     * 不支持流水线时(如部分集群模式)逐个申请
+     *
+     * @param stringRedisTemplate redis
+     * @param increments          申请参数
+     * @return 与申请参数顺序一致的结果
+     */
+    public static List<Result> incrementAll(StringRedisTemplate stringRedisTemplate, List<Increment> increments) {
+        if (increments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return executePipelined(stringRedisTemplate, increments);
+        } catch (RuntimeException e) {
+            if (isNoScript(e)) {
+                stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                        connection.scriptLoad(SCRIPT.getBytes(StandardCharsets.UTF_8)));
+                return executePipelined(stringRedisTemplate, increments);
+            }
+            log.warn("流水线申请编号失败，改为逐个申请", e);
+        }
+        List<Result> results = new ArrayList<>(increments.size());
+        for (Increment increment : increments) {
+            results.add(increment(stringRedisTemplate, increment));
+        }
+        return results;
+    }
+
+    private static List<Result> executePipelined(StringRedisTemplate stringRedisTemplate, List<Increment> increments) {
+        byte[] sha = REDIS_SCRIPT.getSha1().getBytes(StandardCharsets.UTF_8);
+        List<Object> raw = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Increment increment : increments) {
+                String[] args = increment.getArgs();
+                byte[][] keysAndArgs = new byte[args.length + 1][];
+                keysAndArgs[0] = increment.key.getBytes(StandardCharsets.UTF_8);
+                for (int i = 0; i < args.length; i++) {
+                    keysAndArgs[i + 1] = args[i].getBytes(StandardCharsets.UTF_8);
+                }
+                connection.evalSha(sha, ReturnType.MULTI, 1, keysAndArgs);
+            }
+            return null;
+        });
+        List<Result> results = new ArrayList<>(raw.size());
+        for (int i = 0; i < raw.size(); i++) {
+            results.add(Result.of((List<?>) raw.get(i), increments.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * 预留一个编号，优先使用归还(撤销或预留过期)的最小编号，保证编号连续
+     *
+     * @param stringRedisTemplate redis
+     * @param increment           当前值key的申请参数，数量为1，key不存在且没有初始值时返回的结果为 {@link Result#isAbsent()}
+     * @param ttlMillis           预留时长，超时未确认的编号在下次预留时回收；小于等于0时直接发放不预留
+     * @param token               预留令牌，确认和撤销时使用
+     * @return 结果
+     */
+    public static Result reserve(StringRedisTemplate stringRedisTemplate, Increment increment, long ttlMillis, String token) {
+        String[] args = increment.getArgs();
+        String[] reserveArgs = new String[args.length + 4];
+        System.arraycopy(args, 0, reserveArgs, 0, args.length);
+        reserveArgs[args.length] = String.valueOf(System.currentTimeMillis());
+        reserveArgs[args.length + 1] = String.valueOf(ttlMillis);
+        reserveArgs[args.length + 2] = token;
+        reserveArgs[args.length + 3] = String.valueOf(RECLAIM_LIMIT);
+        List<?> result = stringRedisTemplate.execute(RESERVE_REDIS_SCRIPT,
+                Arrays.asList(increment.key, getReturnedKey(increment.key), getReservedKey(increment.key)), (Object[]) reserveArgs);
+        return Result.of(result, increment);
+    }
+
+    /**
+     * 确认预留的编号
+     *
+     * @return 预留已过期且编号已被再次发放时返回false
+     */
+    public static boolean commit(StringRedisTemplate stringRedisTemplate, String key, long number, String token) {
+        Long result = stringRedisTemplate.execute(COMMIT_SCRIPT, Arrays.asList(getReturnedKey(key), getReservedKey(key)),
+                number + ":" + token, String.valueOf(number));
+        return Objects.nonNull(result) && result > 0;
+    }
+
+    /**
+     * 撤销预留，编号放回归还集合，下次预留或获取编号时优先使用
+     *
+     * @return 预留已过期(已被回收)时返回false
+     */
+    public static boolean rollback(StringRedisTemplate stringRedisTemplate, String key, long number, String token) {
+        Long result = stringRedisTemplate.execute(ROLLBACK_SCRIPT, Arrays.asList(getReturnedKey(key), getReservedKey(key)),
+                number + ":" + token, String.valueOf(number));
+        return Objects.nonNull(result) && result > 0;
+    }
+
+    /**
+     * 归还编号的有序集合key
+     */
+    public static String getReturnedKey(String key) {
+        return key + RETURNED_KEY_SUFFIX;
+    }
+
+    /**
+     * 预留编号的有序集合key
+     */
+    public static String getReservedKey(String key) {
+        return key + RESERVED_KEY_SUFFIX;
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; Objects.nonNull(cause); cause = cause.getCause()) {
+            if (Objects.nonNull(cause.getMessage()) && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 初始化、自增并按最大值循环，结果写入value和status；key不存在且没有初始值时直接返回
+     */
+    private static String counterScript() {
+        String script =
+                "if redis.call('EXISTS', KEYS[1]) == 0 then\n" +
+                "  if ARGV[2] == '' then\n" +
+                "    return {0, -1}\n" +
+                "  end\n" +
+                "  redis.call('SET', KEYS[1], ARGV[2])\n" +
+                "  if tonumber(ARGV[3]) > 0 then\n" +
+                "    redis.call('PEXPIRE', KEYS[1], ARGV[3])\n" +
+                "  end\n" +
+                "  status = 1\n" +
+                "end\n" +
+                "value = redis.call('INCRBY', KEYS[1], ARGV[1])\n" +
+                "local max = tonumber(ARGV[4])\n" +
+                "if max > 0 and value > max then\n" +
+                "  value = tonumber(ARGV[1])\n" +
+                "  local ttl = redis.call('PTTL', KEYS[1])\n" +
+                "  redis.call('SET', KEYS[1], value)\n" +
+                "  if ttl > 0 then\n" +
+                "    redis.call('PEXPIRE', KEYS[1], ttl)\n" +
+                "  end\n" +
+                "  status = status + 2\n" +
+                "end\n";
+        return script;
+    }
+
+    /**
+     * 按序号表达式计算最大编号，只有不循环(MAX_CYCLE)的配置需要
+     *
+     * @param serialItem 序号表达式，如 0000
+     * @return 最大编号，序号位数过长时返回0(不循环)
+     */
+    public static long getMaxSerial(String serialItem) {
+        int width = Objects.isNull(serialItem) ? 0 : serialItem.length();
+        if (width <= 0 || width > MAX_SERIAL_WIDTH) {
+            return 0L;
+        }
+        long max = 1L;
+        for (int i = 0; i < width; i++) {
+            max *= 10;
+        }
+        return max - 1;
+    }
+
+    /**
+     * 申请参数，初始值和最大值都按编号表示，分片时在执行前换算为分片计数
+     */
+    public static final class Increment {
+
+        private final String key;
+
+        private final int count;
+
+        private final Long seed;
+
+        private final long expireMillis;
+
+        private final long max;
+
+        private final int shard;
+
+        private final int shards;
+
+        /**
+         * @param key          当前值key
+         * @param count        数量
+         * @param seed         key不存在时的初始值，为null时不初始化
+         * @param expireMillis 初始化时设置的过期时间，小于等于0时不过期
+         * @param max          最大编号，小于等于0时不循环
+         */
+        public Increment(String key, int count, Long seed, long expireMillis, long max) {
+            this(key, count, seed, expireMillis, max, 0, 1);
+        }
+
+        private Increment(String key, int count, Long seed, long expireMillis, long max, int shard, int shards) {
+            this.key = key;
+            this.count = count;
+            this.seed = seed;
+            this.expireMillis = expireMillis;
+            this.max = max;
+            this.shard = shard;
+            this.shards = shards;
+        }
+
+        /**
+         * 使用初始值的相同申请
+         */
+        public Increment withSeed(long seed) {
+            return new Increment(key, count, seed, expireMillis, max, shard, shards);
+        }
+
+        /**
+         * 只按初始值初始化key(不存在时)，不申请编号
+         */
+        public Increment initialize(long seed) {
+            return new Increment(key, 0, seed, expireMillis, max, shard, shards);
+        }
+
+        /**
+         * 改为在指定分片上申请，shards小于等于1时不分片
+         *
+         * @param shard  分片序号
+         * @param shards 分片数量
+         * @return 分片申请
+         */
+        public Increment shard(int shard, int shards) {
+            if (shards <= 1) {
+                return this;
+            }
+            return new Increment(SerialShards.getShardKey(key, shard), count, seed, expireMillis, max, shard, shards);
+        }
+
+        /**
+         * 在当前线程选择的分片上申请，见 {@link SerialShards#select(int)}
+         */
+        public Increment shard(int shards) {
+            return shard(SerialShards.select(shards), shards);
+        }
+
+        /**
+         * 分片数量，即一次申请的多个编号之间的间隔
+         */
+        public int getShards() {
+            return shards;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        private String[] getArgs() {
+            String seedArg = "";
+            if (Objects.nonNull(seed)) {
+                seedArg = String.valueOf(shards > 1 ? SerialShards.toCounter(seed, shard, shards) : seed);
+            }
+            long counterMax = shards > 1 && max > 0 ? Math.max(SerialShards.toCounter(max, shard, shards), 1L) : max;
+            return new String[]{String.valueOf(count), seedArg, String.valueOf(expireMillis), String.valueOf(counterMax)};
+        }
+
+        private long toNumber(long counter) {
+            return shards > 1 ? SerialShards.toNumber(counter, shard, shards) : counter;
+        }
+    }
+
+    public static final class Result {
+
+        private final long value;
+
+        private final long status;
+
+        private Result(long value, long status) {
+            this.value = value;
+            this.status = status;
+        }
+
+        private static Result of(List<?> result, Increment increment) {
+            if (Objects.isNull(result) || result.size() < 2) {
+                throw new IllegalStateException("编号计数器脚本返回结果异常：" + result);
+            }
+            return new Result(increment.toNumber(((Number) result.get(0)).longValue()), ((Number) result.get(1)).longValue());
+        }
+
+        /**
+         * 本次申请的最后一个编号，分片时已由分片计数换算为编号
+         */
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * key不存在且没有提供初始值，需要校准后重新申请
+         */
+        public boolean isAbsent() {
+            return status == STATUS_ABSENT;
+        }
+
+        /**
+         * 本次调用初始化了key
+         */
+        public boolean isInitialized() {
+            return status > 0 && (status & STATUS_INITIALIZED) != 0;
+        }
+
+        /**
+         * 本次预留使用了归还的编号
+         */
+        public boolean isReused() {
+            return status > 0 && (status & STATUS_REUSED) != 0;
+        }
+
+        /**
+         * 本次调用超过最大编号，从1开始
+         */
+        public boolean isWrapped() {
+            return status > 0 && (status & STATUS_WRAPPED) != 0;
+        }
+    }
+}
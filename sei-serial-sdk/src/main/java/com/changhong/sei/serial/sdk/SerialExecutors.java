@@ -0,0 +1,73 @@
+package com.changhong.sei.serial.sdk;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * SDK异步任务(号段预取、配置刷新、异步给号)使用的线程池
+ */
+final class SerialExecutors {
+
+    private static final String THREAD_NAME_PREFIX = "sei-serial-async-";
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private SerialExecutors() {
+    }
+
+    /**
+     * 默认线程池，按需创建守护线程
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * 创建固定大小、有界队列的线程池，空闲线程超时后回收
+     *
+     * @param poolSize      线程数
+     * @param queueCapacity 队列长度，队列满时拒绝任务
+     * @return 线程池
+     */
+    static ExecutorService newBoundedExecutor(int poolSize, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(queueCapacity, 1)), THREAD_FACTORY);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 在线程池中执行，任务被拒绝时返回异常完成的future，不在调用线程上抛出
+     */
+    static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private static final ThreadFactory THREAD_FACTORY = runnable -> {
+        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + THREAD_INDEX.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private static class DefaultExecutorHolder {
+
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(THREAD_FACTORY);
+    }
+}
@@ -0,0 +1,191 @@
+package com.changhong.sei.serial.sdk;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 内嵌模式的高水位日志，内存映射文件，每个计数器占一个固定大小的槽位
+ * <p>
+ * 文件头：魔数、版本、槽位数；槽位：key长度(0表示空闲)、key、已发放的最后一个编号。
+ * 写入只修改映射内存，进程崩溃后由操作系统写回；{@link #force()} 把修改刷到磁盘
+ */
+final class SerialJournal implements Closeable {
+
+    private static final int MAGIC = 0x53455253;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int SLOT_SIZE = 256;
+
+    private static final int VALUE_OFFSET = SLOT_SIZE - Long.BYTES;
+
+    private static final int MAX_KEY_LENGTH = VALUE_OFFSET - Short.BYTES;
+
+    private final RandomAccessFile file;
+
+    private final MappedByteBuffer buffer;
+
+    private final int capacity;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private volatile boolean dirty;
+
+    /**
+     * @param path     日志文件，不存在时创建
+     * @param capacity 新建文件的槽位数，已有文件使用文件头中的槽位数
+     */
+    SerialJournal(File path, int capacity) throws IOException {
+        File parent = path.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("无法创建编号日志目录 " + parent);
+        }
+        this.file = new RandomAccessFile(path, "rw");
+        try {
+            boolean created = file.length() == 0;
+            if (created) {
+                file.setLength(HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            } else {
+                file.seek(0);
+                if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+                    throw new IOException("不是有效的编号日志文件 " + path);
+                }
+                capacity = file.readInt();
+            }
+            this.capacity = capacity;
+            this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, capacity);
+                buffer.force();
+            }
+            load();
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private void load() {
+        for (int slot = capacity - 1; slot >= 0; slot--) {
+            int offset = offset(slot);
+            int length = buffer.getShort(offset);
+            if (length <= 0 || length > MAX_KEY_LENGTH) {
+                freeSlots.push(slot);
+                continue;
+            }
+            byte[] key = new byte[length];
+            for (int i = 0; i < length; i++) {
+                key[i] = buffer.get(offset + Short.BYTES + i);
+            }
+            slots.put(new String(key, StandardCharsets.UTF_8), slot);
+        }
+    }
+
+    /**
+     * 记录的值
+     *
+     * @return 没有记录时返回null
+     */
+    synchronized Long get(String key) {
+        Integer slot = slots.get(key);
+        return slot == null ? null : read(slot);
+    }
+
+    /**
+     * 写入key的值，没有槽位时分配
+     *
+     * @return 槽位
+     */
+    synchronized int put(String key, long value) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("编号日志key过长：" + key);
+            }
+            if (freeSlots.isEmpty()) {
+                throw new IllegalStateException("编号日志槽位已满，容量 " + capacity);
+            }
+            slot = freeSlots.pop();
+            int offset = offset(slot);
+            buffer.putLong(offset + VALUE_OFFSET, value);
+            for (int i = 0; i < bytes.length; i++) {
+                buffer.put(offset + Short.BYTES + i, bytes[i]);
+            }
+            buffer.putShort(offset, (short) bytes.length);
+            slots.put(key, slot);
+            dirty = true;
+            return slot;
+        }
+        write(slot, value);
+        return slot;
+    }
+
+    /**
+     * 写入槽位的值，同一槽位的写入由调用方保证顺序
+     */
+    void write(int slot, long value) {
+        buffer.putLong(offset(slot) + VALUE_OFFSET, value);
+        dirty = true;
+    }
+
+    long read(int slot) {
+        return buffer.getLong(offset(slot) + VALUE_OFFSET);
+    }
+
+    /**
+     * 释放符合条件的key的槽位
+     */
+    synchronized void removeIf(Predicate<String> filter) {
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+            if (filter.test(entry.getKey())) {
+                buffer.putShort(offset(entry.getValue()), (short) 0);
+                freeSlots.push(entry.getValue());
+                removed.add(entry.getKey());
+            }
+        }
+        if (!removed.isEmpty()) {
+            slots.keySet().removeAll(removed);
+            dirty = true;
+        }
+    }
+
+    /**
+     * 有修改时刷到磁盘
+     */
+    void force() {
+        if (dirty) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        file.close();
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
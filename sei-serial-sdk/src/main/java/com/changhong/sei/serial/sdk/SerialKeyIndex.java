@@ -0,0 +1,89 @@
+package com.changhong.sei.serial.sdk;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * redis key索引(set)的登记，SDK和给号服务共用
+ * <p>
+ * 按周期过期的当前值key过期后仍留在索引中，索引会随周期无限增长。
+ * 每次登记了新key时随机抽查少量已登记的key，移除已不存在的，索引大小保持在存活key数量附近；
+ * 连续编号的归还、预留集合为空时redis会删除该key，按其当前值key是否存在判断
+ */
+public final class SerialKeyIndex {
+
+    /**
+     * 每次登记新key时抽查的已登记key数量
+     */
+    private static final int PRUNE_SAMPLE_SIZE = 10;
+
+    private static final String[] COMPANION_SUFFIXES = {
+            SerialCounterScript.getReturnedKey(""), SerialCounterScript.getReservedKey("")};
+
+    private SerialKeyIndex() {
+    }
+
+    /**
+     * 登记key，有新登记的key时清理索引中已过期的key
+     *
+     * @param stringRedisTemplate redis
+     * @param indexKey            索引key
+     * @param keys                登记的key
+     */
+    public static void register(StringRedisTemplate stringRedisTemplate, String indexKey, String... keys) {
+        Long added = stringRedisTemplate.opsForSet().add(indexKey, keys);
+        if (Objects.nonNull(added) && added > 0L) {
+            prune(stringRedisTemplate, indexKey);
+        }
+    }
+
+    /**
+     * 随机抽查索引中的key，移除已不存在的
+     *
+     * @param stringRedisTemplate redis
+     * @param indexKey            索引key
+     * @return 移除的数量
+     */
+    public static long prune(StringRedisTemplate stringRedisTemplate, String indexKey) {
+        Set<String> sample = stringRedisTemplate.opsForSet().distinctRandomMembers(indexKey, PRUNE_SAMPLE_SIZE);
+        if (Objects.isNull(sample) || sample.isEmpty()) {
+            return 0L;
+        }
+        List<String> members = new ArrayList<>(sample);
+        List<Object> exists = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String member : members) {
+                connection.exists(getOwnerKey(member).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<Object> expired = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            if (Boolean.FALSE.equals(exists.get(i))) {
+                expired.add(members.get(i));
+            }
+        }
+        if (expired.isEmpty()) {
+            return 0L;
+        }
+        Long removed = stringRedisTemplate.opsForSet().remove(indexKey, expired.toArray());
+        return Objects.isNull(removed) ? 0L : removed;
+    }
+
+    /**
+     * 决定key是否过期的key：连续编号的归还、预留集合取其当前值key，其他key为自身
+     */
+    static String getOwnerKey(String key) {
+        for (String suffix : COMPANION_SUFFIXES) {
+            if (key.endsWith("}" + suffix) && key.startsWith("{")) {
+                return key.substring(0, key.length() - suffix.length());
+            }
+        }
+        return key;
+    }
+}
@@ -0,0 +1,51 @@
+package com.changhong.sei.serial.sdk;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 监控指标标签值的基数限制，SDK和给号服务共用
+ * <p>
+ * 类路径、租户、隔离码的取值没有上限，全部作为标签会使指标数量无限增长；
+ * 每个标签只保留最先出现的maxValues个取值，之后的取值统一记为 {@link #OTHER}
+ */
+public final class SerialMetricTags {
+
+    /**
+     * 超出数量限制的标签值
+     */
+    public static final String OTHER = "other";
+
+    /**
+     * 空的标签值
+     */
+    public static final String NONE = "none";
+
+    private final int maxValues;
+
+    private final Set<String> values = ConcurrentHashMap.newKeySet();
+
+    public SerialMetricTags(int maxValues) {
+        this.maxValues = maxValues;
+    }
+
+    /**
+     * 标签值，超出数量限制时返回 {@link #OTHER}
+     */
+    public String get(String value) {
+        if (StringUtils.isEmpty(value)) {
+            return NONE;
+        }
+        if (values.contains(value)) {
+            return value;
+        }
+        // 并发时可能略微超出限制，不影响使用
+        if (values.size() >= maxValues) {
+            return OTHER;
+        }
+        values.add(value);
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package com.changhong.sei.serial.sdk;
+
+/**
+ * 给号过程的监控指标，默认不记录
+ * <p>
+ * 引入micrometer且存在MeterRegistry时自动配置为 {@link MicrometerSerialMetrics}，通过actuator的metrics端点查看
+ */
+public interface SerialMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    SerialMetrics NOOP = new SerialMetrics() {
+    };
+
+    String COUNTER_INCREMENT = "increment";
+
+    String COUNTER_PIPELINE = "pipeline";
+
+    String COUNTER_RESERVE = "reserve";
+
+    String COUNTER_COMMIT = "commit";
+
+    String COUNTER_ROLLBACK = "rollback";
+
+    /**
+     * 从给号服务获取配置
+     *
+     * @param classPath 类路径
+     * @param nanos     耗时(纳秒)
+     * @param success   是否获取到配置
+     */
+    default void recordConfigFetch(String classPath, long nanos, boolean success) {
+    }
+
+    /**
+     * 执行redis计数器脚本
+     *
+     * @param operation 操作，见 COUNTER_* 常量
+     * @param nanos     耗时(纳秒)
+     */
+    default void recordCounter(String operation, long nanos) {
+    }
+
+    /**
+     * 从数据库校准当前编号
+     *
+     * @param classPath 类路径
+     * @param nanos     耗时(纳秒)
+     * @param hit       数据库中是否有当前周期的编号
+     */
+    default void recordCalibration(String classPath, long nanos, boolean hit) {
+    }
+
+    /**
+     * 按最大编号循环时编号从头开始
+     *
+     * @param classPath 类路径
+     */
+    default void recordWrap(String classPath) {
+    }
+
+    /**
+     * 发放编号
+     *
+     * @param classPath  类路径
+     * @param tenantCode 租户代码
+     * @param isolation  隔离码
+     * @param count      数量
+     */
+    default void recordIssued(String classPath, String tenantCode, String isolation, int count) {
+    }
+}
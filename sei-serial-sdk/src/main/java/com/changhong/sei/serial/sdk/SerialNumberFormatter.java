@@ -0,0 +1,86 @@
+package com.changhong.sei.serial.sdk;
+
+/**
+ * 补足前导0的序号格式化
+ * <p>
+ * 直接按位写入调用方提供的char[]或StringBuilder，不装箱、不创建NumberFormat和中间字符串，
+ * 目标容量足够时不分配任何对象；超出长度时只保留低位，与NumberFormat设置最大整数位数的结果一致
+ */
+public final class SerialNumberFormatter {
+
+    private SerialNumberFormatter() {
+    }
+
+    /**
+     * 格式化后的长度
+     *
+     * @param serial 序号
+     * @param width  长度
+     * @return 字符数
+     */
+    public static int length(long serial, int width) {
+        return (serial < 0 ? 1 : 0) + Math.max(width, 1);
+    }
+
+    /**
+     * 写入char数组
+     *
+     * @param serial 序号
+     * @param width  长度，小于等于0时写入 "0"
+     * @param dest   目标数组，剩余空间至少为 {@link #length(long, int)}
+     * @param offset 起始位置
+     * @return 写入后的结束位置
+     */
+    public static int format(long serial, int width, char[] dest, int offset) {
+        if (serial < 0) {
+            dest[offset++] = '-';
+        }
+        if (width <= 0) {
+            dest[offset] = '0';
+            return offset + 1;
+        }
+        int end = offset + width;
+        // 按负数取余，Long.MIN_VALUE也不会溢出
+        for (int i = end - 1; i >= offset; i--) {
+            dest[i] = (char) ('0' + Math.abs(serial % 10));
+            serial /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * 追加到StringBuilder
+     *
+     * @param builder 目标
+     * @param serial  序号
+     * @param width   长度，小于等于0时写入 "0"
+     */
+    public static void appendTo(StringBuilder builder, long serial, int width) {
+        if (serial < 0) {
+            builder.append('-');
+        }
+        if (width <= 0) {
+            builder.append('0');
+            return;
+        }
+        int start = builder.length();
+        builder.setLength(start + width);
+        for (int i = start + width - 1; i >= start; i--) {
+            builder.setCharAt(i, (char) ('0' + Math.abs(serial % 10)));
+            serial /= 10;
+        }
+    }
+
+    /**
+     * 格式化为字符串，只分配结果字符串和用于构造它的char数组
+     *
+     * @param serial 序号
+     * @param width  长度
+     * @return 补足前导0的序号
+     */
+    public static String format(long serial, int width) {
+        char[] chars = new char[length(serial, width)];
+        format(serial, width, chars, 0);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,64 @@
+package com.changhong.sei.serial.sdk;
+
+/**
+ * 预留的连续编号，业务事务提交后调用 {@link SerialService#commit(SerialReservation)} 确认，
+ * 失败时调用 {@link SerialService#rollback(SerialReservation)} 归还；超时未确认的编号会被回收再次发放
+ */
+public class SerialReservation {
+
+    private final String key;
+
+    private final long number;
+
+    private final String code;
+
+    private final String token;
+
+    private final long expireAt;
+
+    SerialReservation(String key, long number, String code, String token, long expireAt) {
+        this.key = key;
+        this.number = number;
+        this.code = code;
+        this.token = token;
+        this.expireAt = expireAt;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * 序号
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * 按表达式生成的编号
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 预留的过期时间(毫秒)，过期后确认可能失败
+     */
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    @Override
+    public String toString() {
+        return "SerialReservation{" +
+                "code='" + code + '\'' +
+                ", number=" + number +
+                ", expireAt=" + expireAt +
+                '}';
+    }
+}
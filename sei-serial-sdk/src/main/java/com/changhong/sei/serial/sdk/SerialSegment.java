@@ -0,0 +1,85 @@
+package com.changhong.sei.serial.sdk;
+
+import com.changhong.sei.serial.sdk.entity.IsolationRecordDto;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段，一次从服务端(或redis)租用的一段连续编号，在本地通过AtomicLong分配；
+ * 分片计数器租用的号段编号间隔为分片数量
+ */
+public class SerialSegment {
+
+    /**
+     * 号段分配完时的返回值
+     */
+    public static final long EXHAUSTED = -1L;
+
+    private final IsolationRecordDto recordDto;
+
+    private final AtomicLong value;
+
+    private final long max;
+
+    private final int step;
+
+    /**
+     * @param recordDto 租用号段时获取到的隔离记录及配置
+     * @param min       号段第一个编号
+     * @param max       号段最后一个编号
+     */
+    public SerialSegment(IsolationRecordDto recordDto, long min, long max) {
+        this(recordDto, min, max, 1);
+    }
+
+    /**
+     * @param recordDto 租用号段时获取到的隔离记录及配置
+     * @param min       号段第一个编号
+     * @param max       号段最后一个编号
+     * @param step      编号间隔
+     */
+    public SerialSegment(IsolationRecordDto recordDto, long min, long max, int step) {
+        this.recordDto = recordDto;
+        this.value = new AtomicLong(min);
+        this.max = max;
+        this.step = step;
+    }
+
+    /**
+     * 分配下一个编号
+     *
+     * @return 编号，号段已用完时返回 {@link #EXHAUSTED}
+     */
+    public long next() {
+        long current = value.getAndAdd(step);
+        return current <= max ? current : EXHAUSTED;
+    }
+
+    /**
+     * 剩余可用编号数量
+     */
+    public long getIdle() {
+        long current = value.get();
+        return current > max ? 0L : (max - current) / step + 1;
+    }
+
+    /**
+     * 号段对应的周期已结束(跨天、跨月等)
+     */
+    public boolean isExpired() {
+        return SerialUtils.isCycleExpired(recordDto);
+    }
+
+    public IsolationRecordDto getRecordDto() {
+        return recordDto;
+    }
+
+    @Override
+    public String toString() {
+        return "SerialSegment{" +
+                "value=" + value +
+                ", max=" + max +
+                ", dateString='" + recordDto.getDateString() + '\'' +
+                '}';
+    }
+}
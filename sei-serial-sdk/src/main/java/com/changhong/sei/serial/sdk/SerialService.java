@@ -3,31 +3,120 @@ package com.changhong.sei.serial.sdk;
 import com.changhong.sei.serial.sdk.entity.ConfigType;
 import com.changhong.sei.serial.sdk.entity.CycleStrategy;
 import com.changhong.sei.serial.sdk.entity.IsolationRecordDto;
+import com.changhong.sei.serial.sdk.entity.NumberRequest;
 import com.changhong.sei.serial.sdk.entity.SerialConfig;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 
 import javax.persistence.Table;
 import javax.sql.DataSource;
 import java.lang.annotation.Annotation;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 public class SerialService {
 
     private static final Logger log = LoggerFactory.getLogger(SerialService.class);
 
+    public static final String DEFAULT_CALIBRATION_COLUMN = "code";
+
+    private static final Pattern COLUMN_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private static final char LIKE_ESCAPE = '!';
+
+    private static final String CALIBRATION_LOCK_KEY_PREFIX = "sei-serial:calibrate:";
+
+    /**
+     * 校准锁的过期时间，持有锁的节点异常退出时其他节点最多等待该时间
+     */
+    private static final long CALIBRATION_LOCK_MILLIS = 5000L;
+
+    private static final long CALIBRATION_WAIT_MILLIS = 50L;
+
+    /**
+     * 默认的编号预留时长
+     */
+    public static final long DEFAULT_RESERVATION_TTL = 300000L;
+
+    /**
+     * 只删除自己持有的锁
+     */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
     private String configAddress;
 
     private StringRedisTemplate stringRedisTemplate;
 
     private DataSource dataSource;
 
+    /**
+     * 号段大小，大于1时启用号段模式，一次租用一段编号在本地分配
+     */
+    private int segmentSize;
+
+    private Executor executor = SerialExecutors.defaultExecutor();
+
+    /**
+     * 本地配置缓存，为空时每次从给号服务获取配置
+     */
+    private SerialConfigCache configCache;
+
+    private SerialTransport transport = new HttpSerialTransport();
+
+    /**
+     * 内嵌给号器，不为空时配置和编号都在本地生成
+     */
+    private EmbeddedSerialAllocator embeddedAllocator;
+
+    /**
+     * 校准时查询最大编号的列
+     */
+    private String calibrationColumn = DEFAULT_CALIBRATION_COLUMN;
+
+    /**
+     * 连续编号的预留时长(毫秒)，超时未确认的编号会被回收
+     */
+    private long reservationTtl = DEFAULT_RESERVATION_TTL;
+
+    private SerialMetrics metrics = SerialMetrics.NOOP;
+
+    /**
+     * 没有redis时每个编号序列(类路径、租户、隔离码，不含周期)本节点最后发放的编号，
+     * 只保留当前周期，数量不超过序列数
+     */
+    private final Map<String, DbCounter> dbCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 正在校准的redis当前值key
+     */
+    private final Map<String, CompletableFuture<Long>> calibrations = new ConcurrentHashMap<>();
+
+    private final Map<String, SegmentBuffer> segmentBuffers = new ConcurrentHashMap<>();
+
+    /**
+     * 无法使用号段模式的配置(不在服务端生成编号且没有redis)，直接走单个给号
+     */
+    private final Set<String> directKeys = ConcurrentHashMap.newKeySet();
+
     /***
      * 不依赖redis 和 数据库
      * @param configAddress
@@ -60,6 +149,15 @@ public class SerialService {
         this.dataSource = dataSource;
     }
 
+    /***
+     * 内嵌模式，不依赖给号服务、redis和数据库
+     *
+     * @param embeddedAllocator 内嵌给号器
+     */
+    public SerialService(EmbeddedSerialAllocator embeddedAllocator) {
+        this.embeddedAllocator = embeddedAllocator;
+    }
+
     /**
      * 通过类地址获取编号
      *
@@ -103,10 +201,20 @@ public class SerialService {
      * @return
      */
     public String getNumber(String classPath, Map<String, String> param, String tableName, String isolation) {
+        return getNumber(classPath, param, tableName, isolation, SerialUtils.getAuthToken());
+    }
+
+    private String getNumber(String classPath, Map<String, String> param, String tableName, String isolation, String authToken) {
         if(StringUtils.isBlank(isolation)){
             isolation = SerialUtils.DEFAULT_ISOLATION;
         }
-        IsolationRecordDto recordDto = SerialUtils.getSerialConfig(configAddress, classPath, isolation);
+        if (segmentSize > 1 && Objects.isNull(embeddedAllocator)) {
+            String code = getNumberFromSegment(classPath, param, tableName, isolation, authToken);
+            if (Objects.nonNull(code)) {
+                return code;
+            }
+        }
+        IsolationRecordDto recordDto = getSerialConfig(classPath, isolation, 1, authToken);
         if(Objects.isNull(recordDto)){
             log.error("未获取到相应class【{}】,隔离码【{}】的配置", classPath,isolation);
             return null;
@@ -116,30 +224,395 @@ public class SerialService {
             log.error("未获取到相应class【{}】的配置", classPath);
             return null;
         }
-        String serialItem = SerialUtils.getSerialItem(config.getExpressionConfig());
         if (Boolean.TRUE.equals(config.getGenFlag())) {
             log.info("直接从服务获取编号进行解析");
-            return SerialUtils.parserExpression(config.getExpressionConfig(), recordDto.getCurrentNumber(), serialItem, param);
+            metrics.recordIssued(classPath, config.getTenantCode(), isolation, 1);
+            return SerialUtils.parserExpression(config.getExpressionConfig(), recordDto.getCurrentNumber().longValue(), param);
         }
-        Long number = getNextNumber(classPath, tableName, recordDto,isolation);
-        number = adjustCurrentNumber(number,config,serialItem,isolation,recordDto.getDateString());
+        long number = getNextNumber(classPath, tableName, recordDto,isolation);
+        number = adjustCurrentNumber(classPath, number,config,isolation,recordDto.getDateString());
         log.info("获得 {} 的下一编号为 {}", classPath, number);
-        return SerialUtils.parserExpression(config.getExpressionConfig(), number, serialItem, param);
+        metrics.recordIssued(classPath, config.getTenantCode(), isolation, 1);
+        return SerialUtils.parserExpression(config.getExpressionConfig(), number, param);
+    }
+
+    /**
+     * 异步获取编号
+     *
+     * @param classPath 类地址
+     * @return 编号
+     */
+    public CompletableFuture<String> getNumberAsync(String classPath) {
+        return this.getNumberAsync(classPath, null, null, null);
+    }
+
+    public CompletableFuture<String> getNumberAsync(String classPath, Map<String, String> param, String isolation) {
+        return this.getNumberAsync(classPath, param, null, isolation);
+    }
+
+    public CompletableFuture<String> getNumberAsync(Class clz, Map<String, String> param, String isolation) {
+        return this.getNumberAsync(clz.getName(), param, getTableName(clz), isolation);
+    }
+
+    /**
+     * 异步获取编号，不阻塞调用线程
+     * <p>
+     * 号段模式下当前号段还有剩余时(或内嵌模式)直接在调用线程上分配并返回已完成的future，
+     * 否则在 {@link #setExecutor(Executor)} 设置的线程池中获取；请求token在调用线程上读取后传入
+     *
+     * @param classPath 类地址
+     * @param param     表达式参数
+     * @param tableName 表名
+     * @param isolation 隔离码
+     * @return 编号，获取失败时为null
+     */
+    public CompletableFuture<String> getNumberAsync(String classPath, Map<String, String> param, String tableName, String isolation) {
+        String realIsolation = StringUtils.isBlank(isolation) ? SerialUtils.DEFAULT_ISOLATION : isolation;
+        String authToken = SerialUtils.getAuthToken();
+        if (Objects.nonNull(embeddedAllocator)) {
+            // 内嵌模式只在本地内存分配，直接在调用线程上完成
+            return CompletableFuture.completedFuture(getNumber(classPath, param, tableName, realIsolation, authToken));
+        }
+        if (segmentSize > 1) {
+            String code = tryGetNumberFromSegment(classPath, param, realIsolation, authToken);
+            if (Objects.nonNull(code)) {
+                return CompletableFuture.completedFuture(code);
+            }
+        }
+        return SerialExecutors.supplyAsync(() -> getNumber(classPath, param, tableName, realIsolation, authToken), executor);
+    }
+
+    /**
+     * 通过类地址批量获取编号
+     *
+     * @param classPath 类地址
+     * @param count     数量
+     * @return 编号列表
+     */
+    public List<String> getNumbers(String classPath, int count) {
+        return this.getNumbers(classPath, count, null, null);
+    }
+
+    /**
+     * 通过类地址和参数批量获取编号，一次请求预留count个连续编号
+     *
+     * @param classPath 类地址
+     * @param count     数量
+     * @param param     表达式参数
+     * @param isolation 隔离码
+     * @return 编号列表
+     */
+    public List<String> getNumbers(String classPath, int count, Map<String, String> param, String isolation) {
+        return this.getNumbers(classPath, count, param, null, isolation);
+    }
+
+    /**
+     * 通过实体类和参数批量获取编号
+     *
+     * @param clz       实体类
+     * @param count     数量
+     * @param param     表达式参数
+     * @param isolation 隔离码
+     * @return 编号列表
+     */
+    public List<String> getNumbers(Class clz, int count, Map<String, String> param, String isolation) {
+        return this.getNumbers(clz.getName(), count, param, getTableName(clz), isolation);
+    }
+
+    /***
+     * 通过类地址，参数，表名批量获取编号
+     * @param classPath
+     * @param count
+     * @param param
+     * @param tableName
+     * @param isolation
+     * @return
+     */
+    public List<String> getNumbers(String classPath, int count, Map<String, String> param, String tableName, String isolation) {
+        if (count < 1) {
+            return Collections.emptyList();
+        }
+        if (StringUtils.isBlank(isolation)) {
+            isolation = SerialUtils.DEFAULT_ISOLATION;
+        }
+        IsolationRecordDto recordDto = getSerialConfig(classPath, isolation, count, SerialUtils.getAuthToken());
+        if (Objects.isNull(recordDto) || Objects.isNull(recordDto.getSerialNumberConfig())) {
+            log.error("未获取到相应class【{}】,隔离码【{}】的配置", classPath, isolation);
+            return Collections.emptyList();
+        }
+        SerialConfig config = recordDto.getSerialNumberConfig();
+        if (isRedisGapless(config)) {
+            List<Long> numbers = issueGapless(classPath, tableName, recordDto, isolation, count);
+            log.info("获得 {} 的连续编号 {}", classPath, numbers);
+            metrics.recordIssued(classPath, config.getTenantCode(), isolation, count);
+            return renderNumbers(config, numbers, param);
+        }
+        long last;
+        if (Boolean.TRUE.equals(config.getGenFlag())) {
+            last = recordDto.getCurrentNumber();
+        } else {
+            last = getNextNumber(classPath, tableName, recordDto, isolation, count);
+        }
+        int shards = getShards(config);
+        log.info("获得 {} 的编号 [{}, {}]", classPath, SerialShards.first(last, count, shards), last);
+        metrics.recordIssued(classPath, config.getTenantCode(), isolation, count);
+        return renderNumbers(config, last, count, shards, param);
+    }
+
+    /**
+     * 一次获取多个配置的编号，如单据头编号、行编号、条码
+     * <p>
+     * 不在服务端生成编号的配置在一个redis流水线中申请，只有一次redis往返；
+     * 其他配置(服务端生成编号、没有redis、优先发放归还编号的连续编号)逐个获取
+     *
+     * @param requests 获取请求
+     * @return 与请求顺序一致的编号列表，获取失败的请求为空列表
+     */
+    public List<List<String>> getNumbers(List<NumberRequest> requests) {
+        String authToken = SerialUtils.getAuthToken();
+        List<List<String>> results = new ArrayList<>(requests.size());
+        List<IsolationRecordDto> pipelinedRecords = new ArrayList<>();
+        List<SerialCounterScript.Increment> increments = new ArrayList<>();
+        List<Integer> pipelinedIndexes = new ArrayList<>();
+        for (NumberRequest request : requests) {
+            results.add(Collections.emptyList());
+            int count = request.getCount();
+            if (count < 1) {
+                continue;
+            }
+            String classPath = request.getClassPath();
+            String isolation = StringUtils.isBlank(request.getIsolation()) ? SerialUtils.DEFAULT_ISOLATION : request.getIsolation();
+            IsolationRecordDto recordDto = getSerialConfig(classPath, isolation, count, authToken);
+            if (Objects.isNull(recordDto) || Objects.isNull(recordDto.getSerialNumberConfig())) {
+                log.error("未获取到相应class【{}】,隔离码【{}】的配置", classPath, isolation);
+                continue;
+            }
+            SerialConfig config = recordDto.getSerialNumberConfig();
+            if (isRedisGapless(config)) {
+                List<Long> numbers = issueGapless(classPath, request.getTableName(), recordDto, isolation, count);
+                metrics.recordIssued(classPath, config.getTenantCode(), isolation, count);
+                results.set(results.size() - 1, renderNumbers(config, numbers, request.getParam()));
+                continue;
+            }
+            if (Boolean.TRUE.equals(config.getGenFlag()) || Objects.isNull(stringRedisTemplate)) {
+                long last = Boolean.TRUE.equals(config.getGenFlag()) ? recordDto.getCurrentNumber()
+                        : getNextNumber(classPath, request.getTableName(), recordDto, isolation, count);
+                if (count == 1) {
+                    last = adjustCurrentNumber(classPath, last, config, isolation, recordDto.getDateString());
+                }
+                metrics.recordIssued(classPath, config.getTenantCode(), isolation, count);
+                results.set(results.size() - 1, renderNumbers(config, last, count, getShards(config), request.getParam()));
+                continue;
+            }
+            String currentKey = getCounterKey(classPath, config, isolation, recordDto.getDateString());
+            increments.add(newIncrement(currentKey, config, count));
+            pipelinedRecords.add(recordDto);
+            pipelinedIndexes.add(results.size() - 1);
+        }
+        if (increments.isEmpty()) {
+            return results;
+        }
+        long start = System.nanoTime();
+        List<SerialCounterScript.Result> counters = SerialCounterScript.incrementAll(stringRedisTemplate, increments);
+        metrics.recordCounter(SerialMetrics.COUNTER_PIPELINE, System.nanoTime() - start);
+        for (int i = 0; i < counters.size(); i++) {
+            int index = pipelinedIndexes.get(i);
+            NumberRequest request = requests.get(index);
+            IsolationRecordDto recordDto = pipelinedRecords.get(i);
+            if (counters.get(i).isWrapped()) {
+                metrics.recordWrap(request.getClassPath());
+            }
+            long last = getCounterValue(request.getClassPath(), request.getTableName(), recordDto, increments.get(i), counters.get(i));
+            metrics.recordIssued(request.getClassPath(), recordDto.getSerialNumberConfig().getTenantCode(),
+                    StringUtils.isBlank(request.getIsolation()) ? SerialUtils.DEFAULT_ISOLATION : request.getIsolation(), request.getCount());
+            results.set(index, renderNumbers(recordDto.getSerialNumberConfig(), last, request.getCount(),
+                    increments.get(i).getShards(), request.getParam()));
+        }
+        return results;
+    }
+
+    /**
+     * 按表达式生成以last结尾的count个编号，分片时编号间隔为分片数量
+     */
+    private List<String> renderNumbers(SerialConfig config, long last, int count, int shards, Map<String, String> param) {
+        ExpressionTemplate template = ExpressionTemplate.compile(config.getExpressionConfig());
+        List<String> numbers = new ArrayList<>(count);
+        for (long number = SerialShards.first(last, count, shards); number <= last; number += shards) {
+            numbers.add(template.render(number, param));
+        }
+        return numbers;
+    }
+
+    private List<String> renderNumbers(SerialConfig config, List<Long> numbers, Map<String, String> param) {
+        ExpressionTemplate template = ExpressionTemplate.compile(config.getExpressionConfig());
+        List<String> result = new ArrayList<>(numbers.size());
+        for (Long number : numbers) {
+            result.add(template.render(number, param));
+        }
+        return result;
+    }
+
+    /**
+     * 一次申请的多个编号之间的间隔：服务端或redis按分片给号时为分片数量，本地计数器不分片
+     */
+    private int getShards(SerialConfig config) {
+        if (!Boolean.TRUE.equals(config.getGenFlag())
+                && (Objects.nonNull(embeddedAllocator) || Objects.isNull(stringRedisTemplate))) {
+            return 1;
+        }
+        return SerialShards.getShardCount(config.getShardCount());
+    }
+
+    /**
+     * 号段模式获取编号
+     *
+     * @return 编号，当前配置无法使用号段模式或租用号段失败时返回null
+     */
+    private String getNumberFromSegment(String classPath, Map<String, String> param, String tableName, String isolation,
+                                        String authToken) {
+        String bufferKey = SerialUtils.getLocalKey(classPath, isolation, SerialUtils.getTenantCodeFromToken(authToken));
+        if (directKeys.contains(bufferKey)) {
+            return null;
+        }
+        SegmentBuffer buffer = segmentBuffers.computeIfAbsent(bufferKey, key -> new SegmentBuffer(key, segmentSize,
+                (step, token) -> leaseSegment(key, classPath, tableName, isolation, step, token), executor));
+        while (true) {
+            SerialSegment segment = buffer.acquire(authToken);
+            if (Objects.isNull(segment)) {
+                return null;
+            }
+            long number = segment.next();
+            if (number != SerialSegment.EXHAUSTED) {
+                return renderSegmentNumber(classPath, isolation, segment, number, param);
+            }
+            buffer.exhausted(segment, authToken);
+        }
+    }
+
+    /**
+     * 从已加载的号段中直接分配编号，不加载号段
+     *
+     * @return 编号，没有可用号段时返回null
+     */
+    private String tryGetNumberFromSegment(String classPath, Map<String, String> param, String isolation, String authToken) {
+        SegmentBuffer buffer = segmentBuffers.get(SerialUtils.getLocalKey(classPath, isolation, SerialUtils.getTenantCodeFromToken(authToken)));
+        if (Objects.isNull(buffer)) {
+            return null;
+        }
+        SerialSegment segment = buffer.tryAcquire(authToken);
+        if (Objects.isNull(segment)) {
+            return null;
+        }
+        long number = segment.next();
+        return number == SerialSegment.EXHAUSTED ? null : renderSegmentNumber(classPath, isolation, segment, number, param);
+    }
+
+    private String renderSegmentNumber(String classPath, String isolation, SerialSegment segment, long number,
+                                       Map<String, String> param) {
+        SerialConfig config = segment.getRecordDto().getSerialNumberConfig();
+        if (log.isDebugEnabled()) {
+            log.debug("号段模式获得 {} 的下一编号为 {}", classPath, number);
+        }
+        metrics.recordIssued(classPath, config.getTenantCode(), isolation, 1);
+        return SerialUtils.parserExpression(config.getExpressionConfig(), number, param);
+    }
+
+    /**
+     * 租用号段，服务端生成编号时由服务端预留，否则在redis中预留
+     */
+    private SerialSegment leaseSegment(String bufferKey, String classPath, String tableName, String isolation,
+                                       int step, String authToken) {
+        IsolationRecordDto recordDto = getSerialConfig(classPath, isolation, step, authToken);
+        if (Objects.isNull(recordDto) || Objects.isNull(recordDto.getSerialNumberConfig())) {
+            log.error("未获取到相应class【{}】,隔离码【{}】的配置", classPath, isolation);
+            return null;
+        }
+        SerialConfig config = recordDto.getSerialNumberConfig();
+        long last;
+        if (Boolean.TRUE.equals(config.getGenFlag())) {
+            last = recordDto.getCurrentNumber();
+        } else if (Boolean.TRUE.equals(config.getGapless())) {
+            // 号段在本地缓存的编号在重启时会丢失，连续编号不能使用号段模式
+            log.info("class【{}】为连续编号，不使用号段模式", classPath);
+            directKeys.add(bufferKey);
+            return null;
+        } else if (Objects.nonNull(stringRedisTemplate)) {
+            last = getNextNumber(classPath, tableName, recordDto, isolation, step);
+        } else {
+            log.info("class【{}】不在服务端生成编号且没有redis，无法使用号段模式", classPath);
+            directKeys.add(bufferKey);
+            return null;
+        }
+        int shards = getShards(config);
+        long first = SerialShards.first(last, step, shards);
+        log.info("获得 {} 的号段 [{}, {}]", classPath, first, last);
+        return new SerialSegment(recordDto, first, last, shards);
+    }
+
+    /**
+     * 获取编号配置，启用本地缓存时优先从缓存获取
+     */
+    private IsolationRecordDto getSerialConfig(String classPath, String isolation, int count, String authToken) {
+        if (Objects.nonNull(embeddedAllocator)) {
+            return embeddedAllocator.getRecord(classPath, isolation);
+        }
+        if (Objects.isNull(configCache)) {
+            return fetchSerialConfig(classPath, isolation, count, authToken);
+        }
+        String key = SerialUtils.getLocalKey(classPath, isolation, SerialUtils.getTenantCodeFromToken(authToken));
+        return configCache.get(key, () -> fetchSerialConfig(classPath, isolation, count, authToken));
+    }
+
+    /**
+     * 从给号服务获取编号配置并记录耗时
+     */
+    private IsolationRecordDto fetchSerialConfig(String classPath, String isolation, int count, String authToken) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            IsolationRecordDto recordDto = SerialUtils.getSerialConfig(transport, configAddress, classPath, isolation, count, authToken);
+            success = Objects.nonNull(recordDto);
+            return recordDto;
+        } finally {
+            metrics.recordConfigFetch(classPath, System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * 编号配置变更，清除本地缓存的配置和号段
+     *
+     * @param classPath 类路径，为 {@link SerialUtils#CONFIG_CHANGE_ALL} 时清除全部
+     */
+    public void invalidateConfig(String classPath) {
+        if (SerialUtils.CONFIG_CHANGE_ALL.equals(classPath)) {
+            if (Objects.nonNull(configCache)) {
+                configCache.invalidateAll();
+            }
+            segmentBuffers.clear();
+            directKeys.clear();
+            return;
+        }
+        if (Objects.nonNull(configCache)) {
+            configCache.invalidate(classPath);
+        }
+        String prefix = classPath + ":";
+        segmentBuffers.keySet().removeIf(key -> key.startsWith(prefix));
+        directKeys.removeIf(key -> key.startsWith(prefix));
     }
 
     /**
      * 校准当前序列
      * @param currentSerial
      * @param config
-     * @param serialItem
      * @return
      */
-    private Long adjustCurrentNumber(Long currentSerial, SerialConfig config, String serialItem,String isolation,String dateString){
-        if (config.getCycleStrategy() == CycleStrategy.MAX_CYCLE && String.valueOf(currentSerial).length() > serialItem.length()) {
-            currentSerial = 1L;
-            if (Objects.nonNull(stringRedisTemplate)) {
-                String currentKey = SerialUtils.getValueKey(config.getEntityClassName(),ConfigType.CODE_TYPE.name(),config.getTenantCode(),isolation,dateString);
-                stringRedisTemplate.opsForValue().set(currentKey, currentSerial.toString());
+    private long adjustCurrentNumber(String classPath, long currentSerial, SerialConfig config, String isolation, String dateString){
+        // 使用redis时由计数器脚本循环，内嵌模式由内嵌给号器循环
+        if (Objects.isNull(stringRedisTemplate) && Objects.isNull(embeddedAllocator) && config.getCycleStrategy() == CycleStrategy.MAX_CYCLE) {
+            long max = SerialCounterScript.getMaxSerial(SerialUtils.getSerialItem(config.getExpressionConfig()));
+            if (max > 0 && currentSerial > max) {
+                currentSerial = 1L;
+                metrics.recordWrap(classPath);
             }
         }
         return currentSerial;
@@ -178,6 +651,10 @@ public class SerialService {
      */
     public String getNumber(Class clz, Map<String, String> param,String isolation) {
         String path = clz.getName();
+        return getNumber(path, param, getTableName(clz),isolation);
+    }
+
+    private String getTableName(Class clz) {
         Annotation[] annotations = clz.getAnnotations();
         String tableName = "";
         for (int i = 0; i < annotations.length; i++) {
@@ -186,42 +663,432 @@ public class SerialService {
                 tableName = ((Table) currentAnnotation).name();
             }
         }
-        return getNumber(path, param, tableName,isolation);
+        return tableName;
     }
 
-    private Long getNextNumber(String path, String tableName, IsolationRecordDto recordDto,
+    private long getNextNumber(String path, String tableName, IsolationRecordDto recordDto,
                                String isolation) {
-        SerialConfig config = recordDto.getSerialNumberConfig();
-        String currentKey = SerialUtils.getValueKey(path,ConfigType.CODE_TYPE.name(),config.getTenantCode(),
-                isolation,recordDto.getDateString());
-        Long currentNumber = 0L;
+        return getNextNumber(path, tableName, recordDto, isolation, 1);
+    }
+
+    /**
+     * 获取下一编号，count大于1时一次预留count个连续编号
+     *
+     * @return 预留编号中的最后一个
+     */
+    private long getNextNumber(String path, String tableName, IsolationRecordDto recordDto,
+                               String isolation, int count) {
+        if (Objects.nonNull(embeddedAllocator)) {
+            return embeddedAllocator.allocate(path, recordDto, isolation, count);
+        }
         if (Objects.isNull(stringRedisTemplate)) {
-            Long dbCurrent = getMaxNumberFormDB(tableName, config.getExpressionConfig());
-            if (Objects.isNull(dbCurrent)) {
-                return config.getInitialSerial();
-            } else {
-                return dbCurrent + 1;
+            return nextNumberFromDB(path, tableName, recordDto, isolation, count);
+        }
+        SerialConfig config = recordDto.getSerialNumberConfig();
+        String currentKey = getCounterKey(path, config, isolation, recordDto.getDateString());
+        SerialCounterScript.Increment increment = newIncrement(currentKey, config, count);
+        if (count == 1 && Boolean.TRUE.equals(config.getGapless())) {
+            // 连续编号优先发放归还的编号，直接发放不预留
+            return reserveValue(path, tableName, recordDto, increment, 0L, "");
+        }
+        return getCounterValue(path, tableName, recordDto, increment, increment(path, increment));
+    }
+
+    /**
+     * 是否为redis上的连续编号，这类编号需要优先发放归还的编号，不能一次申请一段
+     */
+    private boolean isRedisGapless(SerialConfig config) {
+        return Boolean.TRUE.equals(config.getGapless()) && !Boolean.TRUE.equals(config.getGenFlag())
+                && Objects.isNull(embeddedAllocator) && Objects.nonNull(stringRedisTemplate);
+    }
+
+    /**
+     * 连续编号逐个发放，优先发放归还的编号，发放的编号不一定相邻，按从小到大返回
+     */
+    private List<Long> issueGapless(String path, String tableName, IsolationRecordDto recordDto, String isolation, int count) {
+        SerialConfig config = recordDto.getSerialNumberConfig();
+        String currentKey = getCounterKey(path, config, isolation, recordDto.getDateString());
+        SerialCounterScript.Increment increment = newIncrement(currentKey, config, 1);
+        List<Long> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(reserveValue(path, tableName, recordDto, increment, 0L, ""));
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * 没有redis时每次都查询数据库中当前周期的最大编号，取与本节点最后发放的编号中较大的一个递增：
+     * 本节点已发放但还未保存的编号不会重复发放，其他节点保存的编号也不会重复发放；
+     * 多个节点同时发放、都还未保存时仍可能重复，多节点部署需要配置redis
+     * <p>
+     * 按最大编号循环后数据库中仍是循环前的最大编号，本周期内之后只按本节点的计数递增
+     */
+    private long nextNumberFromDB(String path, String tableName, IsolationRecordDto recordDto, String isolation, int count) {
+        SerialConfig config = recordDto.getSerialNumberConfig();
+        String dateString = recordDto.getDateString();
+        Long dbCurrent = getMaxNumberFormDB(path, tableName, config);
+        long floor = Objects.isNull(dbCurrent) ? config.getInitialSerial() - 1 : dbCurrent;
+        long max = config.getCycleStrategy() == CycleStrategy.MAX_CYCLE
+                ? SerialCounterScript.getMaxSerial(SerialUtils.getSerialItem(config.getExpressionConfig())) : 0L;
+        String seriesKey = SerialUtils.getValueKey(path, ConfigType.CODE_TYPE.name(), config.getTenantCode(), isolation, "");
+        DbCounter counter = dbCounters.compute(seriesKey, (key, last) -> {
+            boolean sameCycle = Objects.nonNull(last) && Objects.equals(last.dateString, dateString);
+            boolean wrapped = sameCycle && last.wrapped;
+            long current = sameCycle ? (wrapped ? last.value : Math.max(last.value, floor)) : floor;
+            if (max > 0 && current + count > max) {
+                return new DbCounter(dateString, count, true, true);
             }
+            return new DbCounter(dateString, current + count, wrapped, false);
+        });
+        if (counter.wrappedNow) {
+            metrics.recordWrap(path);
         }
-        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(currentKey))) {
-            currentNumber = stringRedisTemplate.opsForValue().increment(currentKey);
-        } else {
-            Long dbCurrent = getMaxNumberFormDB(tableName, config.getExpressionConfig());
-            long expire = SerialUtils.getExpireByCycleStrategy(config.getCycleStrategy().name());
+        return counter.value;
+    }
+
+    /**
+     * 没有redis时本节点某个编号序列在某个周期最后发放的编号
+     */
+    private static final class DbCounter {
+
+        private final String dateString;
+
+        private final long value;
+
+        /**
+         * 本周期内是否已经按最大编号循环过
+         */
+        private final boolean wrapped;
+
+        /**
+         * 是否在生成本值时循环
+         */
+        private final boolean wrappedNow;
+
+        private DbCounter(String dateString, long value, boolean wrapped, boolean wrappedNow) {
+            this.dateString = dateString;
+            this.value = value;
+            this.wrapped = wrapped;
+            this.wrappedNow = wrappedNow;
+        }
+    }
+
+    /**
+     * redis当前值key，连续编号使用带hash tag的key
+     */
+    private String getCounterKey(String path, SerialConfig config, String isolation, String dateString) {
+        String valueKey = SerialUtils.getValueKey(path, ConfigType.CODE_TYPE.name(), config.getTenantCode(), isolation, dateString);
+        return Boolean.TRUE.equals(config.getGapless()) ? SerialUtils.getGaplessValueKey(valueKey) : valueKey;
+    }
+
+    /**
+     * redis计数器的申请参数，配置了分片时在当前线程的分片上申请
+     */
+    private SerialCounterScript.Increment newIncrement(String currentKey, SerialConfig config, int count) {
+        long expire = SerialUtils.getExpireByCycleStrategy(config.getCycleStrategy().name());
+        long max = config.getCycleStrategy() == CycleStrategy.MAX_CYCLE
+                ? SerialCounterScript.getMaxSerial(SerialUtils.getSerialItem(config.getExpressionConfig())) : 0L;
+        SerialCounterScript.Increment increment = new SerialCounterScript.Increment(currentKey, count, null, expire, max);
+        return Boolean.TRUE.equals(config.getGapless()) ? increment
+                : increment.shard(SerialShards.getShardCount(config.getShardCount()));
+    }
+
+    /**
+     * 取计数器脚本的结果，key不存在时校准后重新申请
+     */
+    private long getCounterValue(String path, String tableName, IsolationRecordDto recordDto,
+                                 SerialCounterScript.Increment increment, SerialCounterScript.Result result) {
+        while (result.isAbsent()) {
+            // 首次获取或周期切换，校准后重新申请；其他节点已初始化时不需要初始值
+            Long seed = calibrate(path, tableName, recordDto, increment);
+            result = increment(path, Objects.isNull(seed) ? increment : increment.withSeed(seed));
+        }
+        return result.getValue();
+    }
+
+    /**
+     * 执行计数器脚本并记录耗时和循环
+     */
+    private SerialCounterScript.Result increment(String path, SerialCounterScript.Increment increment) {
+        long start = System.nanoTime();
+        SerialCounterScript.Result result = SerialCounterScript.increment(stringRedisTemplate, increment);
+        metrics.recordCounter(SerialMetrics.COUNTER_INCREMENT, System.nanoTime() - start);
+        if (result.isWrapped()) {
+            metrics.recordWrap(path);
+        }
+        return result;
+    }
+
+    private SerialCounterScript.Result reserve(String path, SerialCounterScript.Increment increment, long ttl, String token) {
+        long start = System.nanoTime();
+        SerialCounterScript.Result result = SerialCounterScript.reserve(stringRedisTemplate, increment, ttl, token);
+        metrics.recordCounter(SerialMetrics.COUNTER_RESERVE, System.nanoTime() - start);
+        if (result.isWrapped()) {
+            metrics.recordWrap(path);
+        }
+        return result;
+    }
+
+    /**
+     * 预留(ttl小于等于0时直接发放)一个连续编号，key不存在时校准后重新预留
+     */
+    private long reserveValue(String path, String tableName, IsolationRecordDto recordDto,
+                              SerialCounterScript.Increment increment, long ttl, String token) {
+        SerialCounterScript.Result result = reserve(path, increment, ttl, token);
+        while (result.isAbsent()) {
+            Long seed = calibrate(path, tableName, recordDto, increment);
+            result = reserve(path, Objects.isNull(seed) ? increment : increment.withSeed(seed), ttl, token);
+        }
+        if (result.isReused()) {
+            log.info("{} 使用归还的编号 {}", path, result.getValue());
+        }
+        return result.getValue();
+    }
+
+    /**
+     * 冷启动校准，同一个key在本节点只有一个线程校准，其他线程等待其结果；
+     * 节点之间用redis短锁互斥，没有拿到锁的节点等待持有锁的节点初始化key
+     *
+     * @return 初始值，其他节点已初始化key时返回null
+     */
+    private Long calibrate(String path, String tableName, IsolationRecordDto recordDto, SerialCounterScript.Increment increment) {
+        String key = increment.getKey();
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        CompletableFuture<Long> running = calibrations.putIfAbsent(key, future);
+        if (Objects.nonNull(running)) {
+            return running.join();
+        }
+        try {
+            Long seed = calibrateWithLock(path, tableName, recordDto, increment);
+            future.complete(seed);
+            return seed;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calibrations.remove(key, future);
+        }
+    }
+
+    private Long calibrateWithLock(String path, String tableName, IsolationRecordDto recordDto, SerialCounterScript.Increment increment) {
+        String key = increment.getKey();
+        String lockKey = CALIBRATION_LOCK_KEY_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        while (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token,
+                CALIBRATION_LOCK_MILLIS, TimeUnit.MILLISECONDS))) {
+            try {
+                Thread.sleep(CALIBRATION_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待编号校准被中断：" + key, e);
+            }
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+                return null;
+            }
+        }
+        try {
+            // 等待期间持有锁的节点可能已初始化key，拿到锁后不需要再查询数据库
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+                return null;
+            }
+            SerialConfig config = recordDto.getSerialNumberConfig();
+            // 以数据库中的最大编号校准，没有时以配置的当前编号开始
+            Long dbCurrent = getMaxNumberFormDB(path, tableName, config);
+            long seed;
             if (Objects.nonNull(dbCurrent)) {
-                currentNumber = dbCurrent + 1;
+                seed = dbCurrent;
+            } else if (Objects.nonNull(recordDto.getCurrentNumber())) {
+                seed = recordDto.getCurrentNumber() - 1;
             } else {
-                currentNumber = recordDto.getCurrentNumber();
+                seed = config.getInitialSerial() - 1;
             }
-            // 防止多线程重复获取
-            if (Boolean.FALSE.equals(stringRedisTemplate.opsForValue().setIfAbsent(currentKey, currentNumber.toString(), expire, TimeUnit.MILLISECONDS))) {
-                currentNumber = stringRedisTemplate.opsForValue().increment(currentKey);
+            // 释放锁之前初始化key，等待的节点看到key后直接自增
+            if (increment(path, increment.initialize(seed)).isInitialized()) {
+                String indexKey = SerialUtils.getValueIndexKey(path, ConfigType.CODE_TYPE.name(), config.getTenantCode());
+                if (Boolean.TRUE.equals(config.getGapless())) {
+                    SerialKeyIndex.register(stringRedisTemplate, indexKey, key, SerialCounterScript.getReturnedKey(key),
+                            SerialCounterScript.getReservedKey(key));
+                } else {
+                    SerialKeyIndex.register(stringRedisTemplate, indexKey, key);
+                }
             }
+            return seed;
+        } finally {
+            stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(lockKey), token);
+        }
+    }
+
+    /**
+     * 预留一个连续编号，优先使用撤销或超时未确认而归还的编号
+     *
+     * @param classPath 类地址
+     * @param param     表达式参数
+     * @param isolation 隔离码
+     * @return 预留的编号，未获取到配置时返回null
+     */
+    public SerialReservation reserve(String classPath, Map<String, String> param, String isolation) {
+        return reserve(classPath, param, null, isolation);
+    }
+
+    public SerialReservation reserve(Class clz, Map<String, String> param, String isolation) {
+        return reserve(clz.getName(), param, getTableName(clz), isolation);
+    }
+
+    /**
+     * 预留一个连续编号，需要redis，只支持启用了连续编号且不在服务端生成编号的配置
+     *
+     * @param classPath 类地址
+     * @param param     表达式参数
+     * @param tableName 表名，首次预留时用于校准
+     * @param isolation 隔离码
+     * @return 预留的编号，未获取到配置时返回null
+     */
+    public SerialReservation reserve(String classPath, Map<String, String> param, String tableName, String isolation) {
+        if (Objects.isNull(stringRedisTemplate) || Objects.nonNull(embeddedAllocator)) {
+            throw new IllegalStateException("预留编号需要redis");
+        }
+        if (StringUtils.isBlank(isolation)) {
+            isolation = SerialUtils.DEFAULT_ISOLATION;
+        }
+        IsolationRecordDto recordDto = getSerialConfig(classPath, isolation, 1, SerialUtils.getAuthToken());
+        if (Objects.isNull(recordDto) || Objects.isNull(recordDto.getSerialNumberConfig())) {
+            log.error("未获取到相应class【{}】,隔离码【{}】的配置", classPath, isolation);
+            return null;
+        }
+        SerialConfig config = recordDto.getSerialNumberConfig();
+        if (!Boolean.TRUE.equals(config.getGapless()) || Boolean.TRUE.equals(config.getGenFlag())) {
+            throw new IllegalStateException("class【" + classPath + "】未启用连续编号或在服务端生成编号，不能预留");
+        }
+        String key = getCounterKey(classPath, config, isolation, recordDto.getDateString());
+        String token = UUID.randomUUID().toString();
+        long expireAt = System.currentTimeMillis() + reservationTtl;
+        long number = reserveValue(classPath, tableName, recordDto, newIncrement(key, config, 1), reservationTtl, token);
+        log.info("预留 {} 的编号 {}", classPath, number);
+        metrics.recordIssued(classPath, config.getTenantCode(), isolation, 1);
+        return new SerialReservation(key, number, SerialUtils.parserExpression(config.getExpressionConfig(), number, param),
+                token, expireAt);
+    }
+
+    /**
+     * 确认预留的编号
+     *
+     * @param reservation 预留的编号
+     * @return 预留已过期且编号已被再次发放时返回false，此时编号不能使用
+     */
+    public boolean commit(SerialReservation reservation) {
+        long start = System.nanoTime();
+        boolean committed = SerialCounterScript.commit(stringRedisTemplate, reservation.getKey(), reservation.getNumber(),
+                reservation.getToken());
+        metrics.recordCounter(SerialMetrics.COUNTER_COMMIT, System.nanoTime() - start);
+        if (!committed) {
+            log.warn("编号 {} 的预留已过期并被再次发放，确认失败", reservation.getCode());
+        }
+        return committed;
+    }
+
+    /**
+     * 撤销预留，编号归还后优先发放
+     *
+     * @param reservation 预留的编号
+     * @return 预留已过期(已被回收)时返回false
+     */
+    public boolean rollback(SerialReservation reservation) {
+        long start = System.nanoTime();
+        boolean rolledBack = SerialCounterScript.rollback(stringRedisTemplate, reservation.getKey(), reservation.getNumber(),
+                reservation.getToken());
+        metrics.recordCounter(SerialMetrics.COUNTER_ROLLBACK, System.nanoTime() - start);
+        return rolledBack;
+    }
+
+    public long getReservationTtl() {
+        return reservationTtl;
+    }
+
+    /**
+     * 设置连续编号的预留时长(毫秒)，应大于业务事务的最长时间
+     */
+    public void setReservationTtl(long reservationTtl) {
+        this.reservationTtl = reservationTtl;
+    }
+
+    public SerialMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 设置监控指标，默认不记录
+     */
+    public void setMetrics(SerialMetrics metrics) {
+        this.metrics = Objects.isNull(metrics) ? SerialMetrics.NOOP : metrics;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * 设置号段大小，大于1时启用号段模式
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+        this.segmentBuffers.clear();
+        this.directKeys.clear();
+    }
+
+    /**
+     * 设置号段预取、配置刷新、异步给号等异步任务使用的线程池
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 设置本地配置缓存，为空时不缓存
+     */
+    public void setConfigCache(SerialConfigCache configCache) {
+        this.configCache = configCache;
+    }
+
+    public SerialTransport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(SerialTransport transport) {
+        this.transport = transport;
+    }
+
+    public EmbeddedSerialAllocator getEmbeddedAllocator() {
+        return embeddedAllocator;
+    }
+
+    /**
+     * 设置校准时查询最大编号的列，默认为code
+     */
+    public void setCalibrationColumn(String calibrationColumn) {
+        if (!COLUMN_PATTERN.matcher(calibrationColumn).matches()) {
+            throw new IllegalArgumentException("校准列名不合法：" + calibrationColumn);
         }
-        return currentNumber;
+        this.calibrationColumn = calibrationColumn;
+    }
+
+    public String getCalibrationColumn() {
+        return calibrationColumn;
     }
 
-    private Long getMaxNumberFormDB(String tableName, String expression) {
+    /**
+     * 查询当前周期内数据库中的最大编号
+     * <p>
+     * 只查询以当前周期编号前缀开头的记录(如 code like 'PO202610%')，可以使用编号列上的索引，
+     * 前缀为空时才查询整张表
+     *
+     * @return 最大编号的序号，没有数据库配置或没有记录时返回null
+     */
+    private Long getMaxNumberFormDB(String path, String tableName, SerialConfig config) {
         if (log.isDebugEnabled()) {
             log.debug("获取到 table 名称为 {}", tableName);
         }
@@ -229,23 +1096,66 @@ public class SerialService {
             log.info("没有数据库配置，无法进行校准");
             return null;
         }
-        if (StringUtils.isNotBlank(tableName)) {
-            final String sql = "select max(code) as code from " + tableName;
-            log.info("编号校准请求sql为 {}", sql);
-            try (ResultSet result = dataSource.getConnection().createStatement().executeQuery(sql)) {
-                String currentCode = "";
+        if (StringUtils.isBlank(tableName)) {
+            return null;
+        }
+        String expression = config.getExpressionConfig();
+        String prefix = ExpressionTemplate.compile(expression).getCalibrationPrefix(getCycleDateLength(config.getCycleStrategy()));
+        String sql = "select max(" + calibrationColumn + ") from " + tableName;
+        if (StringUtils.isNotEmpty(prefix)) {
+            sql += " where " + calibrationColumn + " like ? escape '" + LIKE_ESCAPE + "'";
+        }
+        log.info("编号校准请求sql为 {}，前缀为 {}", sql, prefix);
+        long start = System.nanoTime();
+        Long number = null;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (StringUtils.isNotEmpty(prefix)) {
+                statement.setString(1, escapeLike(prefix) + "%");
+            }
+            String currentCode = null;
+            try (ResultSet result = statement.executeQuery()) {
                 if (result.next()) {
-                    currentCode = result.getString("code");
+                    currentCode = result.getString(1);
                 }
-                log.info("获取到当前数据库编号为 {}", currentCode);
-                if (StringUtils.isNotBlank(currentCode)) {
-                    return SerialUtils.parseExpressionAndGetNumber(currentCode, expression);
-                }
-                return null;
-            } catch (SQLException e) {
-                log.error("获取数据库编号sql执行出错", e);
             }
+            log.info("获取到当前数据库编号为 {}", currentCode);
+            if (StringUtils.isNotBlank(currentCode)) {
+                number = SerialUtils.parseExpressionAndGetNumber(currentCode, expression);
+            }
+        } catch (SQLException e) {
+            log.error("获取数据库编号sql执行出错", e);
+        } finally {
+            metrics.recordCalibration(path, System.nanoTime() - start, Objects.nonNull(number));
+        }
+        return number;
+    }
+
+    private static int getCycleDateLength(CycleStrategy cycleStrategy) {
+        if (Objects.isNull(cycleStrategy)) {
+            return 0;
+        }
+        switch (cycleStrategy) {
+            case YEAR_CYCLE:
+                return 4;
+            case MONTH_CYCLE:
+                return 6;
+            case DAY_CYCLE:
+                return 8;
+            default:
+                return 0;
+        }
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                builder.append(LIKE_ESCAPE);
+            }
+            builder.append(c);
         }
-        return null;
+        return builder.toString();
     }
 }
@@ -1,5 +1,8 @@
 package com.changhong.sei.serial.sdk;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -12,12 +15,22 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
 import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @ConditionalOnProperty(value = "sei.serial.service.enable",havingValue = "true")
 @AutoConfigureAfter(DataSourceAutoConfiguration.class)
 public class SerialServiceAutoConfig {
 
+    /**
+     * 自定义异步任务线程池的bean名称，未定义时按 sei.serial.service.async-pool-size 创建
+     */
+    public static final String SERIAL_EXECUTOR_BEAN_NAME = "serialAsyncExecutor";
+
     @Bean
     @ConditionalOnMissingBean
     public SerialServiceProperty serialServiceProperty(){
@@ -26,14 +39,43 @@ public class SerialServiceAutoConfig {
 
     @Bean
     @ConditionalOnMissingBean
-    public BarCodeService barCodeService(SerialServiceProperty serialServiceProperty){
-        return new BarCodeService(serialServiceProperty);
+    public SerialTransport serialTransport(SerialServiceProperty serialServiceProperty){
+        return new HttpSerialTransport(serialServiceProperty.getConnectTimeout(), serialServiceProperty.getReadTimeout());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BarCodeService barCodeService(SerialServiceProperty serialServiceProperty,SerialTransport serialTransport,SerialService serialService){
+        BarCodeService barCodeService = new BarCodeService(serialServiceProperty,serialTransport);
+        barCodeService.setExecutor(serialService.getExecutor());
+        return barCodeService;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "sei.serial.service.mode", havingValue = "embedded")
+    public EmbeddedSerialAllocator embeddedSerialAllocator(SerialServiceProperty serialServiceProperty) throws IOException {
+        EmbeddedSerialAllocator allocator = new EmbeddedSerialAllocator(new File(serialServiceProperty.getEmbeddedJournal()),
+                serialServiceProperty.getEmbeddedCapacity(), serialServiceProperty.getEmbeddedSafetyMargin(),
+                serialServiceProperty.getEmbeddedFlushInterval());
+        allocator.register(serialServiceProperty.getEmbeddedConfigs());
+        return allocator;
+    }
+
+    /**
+     * 内嵌模式优先于其他模式，需要在其他 SerialService 之前定义
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "sei.serial.service.mode", havingValue = "embedded")
+    public SerialService embeddedSerialService(SerialServiceProperty serialServiceProperty,SerialTransport serialTransport,@Qualifier(SERIAL_EXECUTOR_BEAN_NAME) ObjectProvider<Executor> serialExecutor,ObjectProvider<SerialMetrics> serialMetrics,EmbeddedSerialAllocator embeddedSerialAllocator){
+        return configure(new SerialService(embeddedSerialAllocator), serialServiceProperty, serialTransport, serialExecutor, serialMetrics);
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public SerialService serialService(SerialServiceProperty serialServiceProperty){
-        return new SerialService(serialServiceProperty.getUrl());
+    public SerialService serialService(SerialServiceProperty serialServiceProperty,SerialTransport serialTransport,@Qualifier(SERIAL_EXECUTOR_BEAN_NAME) ObjectProvider<Executor> serialExecutor,ObjectProvider<SerialMetrics> serialMetrics){
+        return configure(new SerialService(serialServiceProperty.getUrl()), serialServiceProperty, serialTransport, serialExecutor, serialMetrics);
     }
 
 
@@ -41,15 +83,61 @@ public class SerialServiceAutoConfig {
     @ConditionalOnMissingBean
     @ConditionalOnClass({StringRedisTemplate.class,DataSource.class})
     @ConditionalOnBean({StringRedisTemplate.class, DataSource.class})
-    public SerialService serialService(SerialServiceProperty serialServiceProperty,StringRedisTemplate stringRedisTemplate,DataSource dataSource){
-        return new SerialService(serialServiceProperty.getUrl(),stringRedisTemplate,dataSource);
+    public SerialService serialService(SerialServiceProperty serialServiceProperty,SerialTransport serialTransport,@Qualifier(SERIAL_EXECUTOR_BEAN_NAME) ObjectProvider<Executor> serialExecutor,ObjectProvider<SerialMetrics> serialMetrics,StringRedisTemplate stringRedisTemplate,DataSource dataSource){
+        return configure(new SerialService(serialServiceProperty.getUrl(),stringRedisTemplate,dataSource), serialServiceProperty, serialTransport, serialExecutor, serialMetrics);
     }
 
     @Bean
     @ConditionalOnMissingBean
     @ConditionalOnClass(DataSource.class)
     @ConditionalOnBean({DataSource.class})
-    public SerialService serialService(SerialServiceProperty serialServiceProperty,DataSource dataSource){
-        return new SerialService(serialServiceProperty.getUrl(),dataSource);
+    public SerialService serialService(SerialServiceProperty serialServiceProperty,SerialTransport serialTransport,@Qualifier(SERIAL_EXECUTOR_BEAN_NAME) ObjectProvider<Executor> serialExecutor,ObjectProvider<SerialMetrics> serialMetrics,DataSource dataSource){
+        return configure(new SerialService(serialServiceProperty.getUrl(),dataSource), serialServiceProperty, serialTransport, serialExecutor, serialMetrics);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(StringRedisTemplate.class)
+    @ConditionalOnBean(StringRedisTemplate.class)
+    public SerialConfigChangeSubscriber serialConfigChangeSubscriber(StringRedisTemplate stringRedisTemplate, SerialService serialService){
+        return new SerialConfigChangeSubscriber(stringRedisTemplate.getRequiredConnectionFactory(), serialService);
+    }
+
+    /**
+     * 引入micrometer时记录给号监控指标，通过actuator的metrics端点查看
+     */
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnProperty(value = "sei.serial.service.metrics-enabled", havingValue = "true", matchIfMissing = true)
+    static class SerialMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public SerialMetrics serialMetrics(SerialServiceProperty serialServiceProperty, ObjectProvider<MeterRegistry> meterRegistry){
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            return Objects.isNull(registry) ? SerialMetrics.NOOP
+                    : new MicrometerSerialMetrics(registry, serialServiceProperty.getMetricsMaxTagValues());
+        }
+    }
+
+    private SerialService configure(SerialService serialService, SerialServiceProperty serialServiceProperty,
+                                    SerialTransport serialTransport, ObjectProvider<Executor> serialExecutor,
+                                    ObjectProvider<SerialMetrics> serialMetrics){
+        serialService.setTransport(serialTransport);
+        serialService.setMetrics(serialMetrics.getIfAvailable(() -> SerialMetrics.NOOP));
+        // 不注册为Executor类型的bean，避免影响spring boot默认的任务线程池
+        serialService.setExecutor(serialExecutor.getIfAvailable(() -> serialServiceProperty.getAsyncPoolSize() > 0
+                ? SerialExecutors.newBoundedExecutor(serialServiceProperty.getAsyncPoolSize(), serialServiceProperty.getAsyncQueueCapacity())
+                : SerialExecutors.defaultExecutor()));
+        serialService.setSegmentSize(serialServiceProperty.getSegmentSize());
+        serialService.setCalibrationColumn(serialServiceProperty.getCalibrationColumn());
+        serialService.setReservationTtl(serialServiceProperty.getReservationTtl());
+        if (serialServiceProperty.getConfigCacheExpireSeconds() > 0) {
+            serialService.setConfigCache(new SerialConfigCache(serialServiceProperty.getConfigCacheSize(),
+                    TimeUnit.SECONDS.toMillis(serialServiceProperty.getConfigCacheRefreshSeconds()),
+                    TimeUnit.SECONDS.toMillis(serialServiceProperty.getConfigCacheExpireSeconds()),
+                    serialService.getExecutor()));
+        }
+        return serialService;
     }
 }
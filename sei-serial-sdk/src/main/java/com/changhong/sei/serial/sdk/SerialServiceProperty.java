@@ -1,7 +1,11 @@
 package com.changhong.sei.serial.sdk;
 
+import com.changhong.sei.serial.sdk.entity.SerialConfig;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties("sei.serial.service")
 public class SerialServiceProperty {
 
@@ -11,6 +15,96 @@ public class SerialServiceProperty {
 
     private String url;
 
+    /**
+     * 给号模式，embedded 时使用内嵌给号器，不依赖给号服务、redis和数据库
+     */
+    private String mode;
+
+    /**
+     * 号段大小，大于1时启用号段模式，一次从服务端租用一段编号在本地分配
+     */
+    private int segmentSize;
+
+    /**
+     * 本地配置缓存的最大数量
+     */
+    private int configCacheSize = 1024;
+
+    /**
+     * 本地配置缓存超过该时间(秒)后异步刷新
+     */
+    private int configCacheRefreshSeconds = 30;
+
+    /**
+     * 本地配置缓存超过该时间(秒)后同步重新获取，为0时不启用本地缓存
+     */
+    private int configCacheExpireSeconds = 300;
+
+    /**
+     * 请求给号服务的连接超时(毫秒)
+     */
+    private int connectTimeout = HttpSerialTransport.DEFAULT_CONNECT_TIMEOUT;
+
+    /**
+     * 请求给号服务的读取超时(毫秒)
+     */
+    private int readTimeout = HttpSerialTransport.DEFAULT_READ_TIMEOUT;
+
+    /**
+     * 异步任务线程数，为0时按需创建线程
+     */
+    private int asyncPoolSize;
+
+    /**
+     * 异步任务队列长度，队列满时异步给号返回异常完成的future
+     */
+    private int asyncQueueCapacity = 1024;
+
+    /**
+     * 校准时查询最大编号的列
+     */
+    private String calibrationColumn = SerialService.DEFAULT_CALIBRATION_COLUMN;
+
+    /**
+     * 连续编号的预留时长(毫秒)，超时未确认的编号会被回收再次发放
+     */
+    private long reservationTtl = SerialService.DEFAULT_RESERVATION_TTL;
+
+    /**
+     * 是否记录监控指标，需要引入micrometer(如spring-boot-starter-actuator)
+     */
+    private boolean metricsEnabled = true;
+
+    /**
+     * 监控指标每个标签(类路径、租户、隔离码)最多保留的取值数量，超出的记为other
+     */
+    private int metricsMaxTagValues = 100;
+
+    /**
+     * 内嵌模式的高水位日志文件
+     */
+    private String embeddedJournal = "sei-serial.journal";
+
+    /**
+     * 内嵌模式日志文件的计数器数量上限
+     */
+    private int embeddedCapacity = EmbeddedSerialAllocator.DEFAULT_CAPACITY;
+
+    /**
+     * 内嵌模式重启时跳过的编号数量
+     */
+    private long embeddedSafetyMargin = EmbeddedSerialAllocator.DEFAULT_SAFETY_MARGIN;
+
+    /**
+     * 内嵌模式日志刷盘间隔(毫秒)
+     */
+    private long embeddedFlushInterval = EmbeddedSerialAllocator.DEFAULT_FLUSH_INTERVAL;
+
+    /**
+     * 内嵌模式的编号配置
+     */
+    private List<SerialConfig> embeddedConfigs = new ArrayList<>();
+
     public String getUrl() {
         return url;
     }
@@ -18,4 +112,148 @@ public class SerialServiceProperty {
     public void setUrl(String url) {
         this.url = url;
     }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getConfigCacheSize() {
+        return configCacheSize;
+    }
+
+    public void setConfigCacheSize(int configCacheSize) {
+        this.configCacheSize = configCacheSize;
+    }
+
+    public int getConfigCacheRefreshSeconds() {
+        return configCacheRefreshSeconds;
+    }
+
+    public void setConfigCacheRefreshSeconds(int configCacheRefreshSeconds) {
+        this.configCacheRefreshSeconds = configCacheRefreshSeconds;
+    }
+
+    public int getConfigCacheExpireSeconds() {
+        return configCacheExpireSeconds;
+    }
+
+    public void setConfigCacheExpireSeconds(int configCacheExpireSeconds) {
+        this.configCacheExpireSeconds = configCacheExpireSeconds;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getAsyncPoolSize() {
+        return asyncPoolSize;
+    }
+
+    public void setAsyncPoolSize(int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public String getCalibrationColumn() {
+        return calibrationColumn;
+    }
+
+    public void setCalibrationColumn(String calibrationColumn) {
+        this.calibrationColumn = calibrationColumn;
+    }
+
+    public long getReservationTtl() {
+        return reservationTtl;
+    }
+
+    public void setReservationTtl(long reservationTtl) {
+        this.reservationTtl = reservationTtl;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public int getMetricsMaxTagValues() {
+        return metricsMaxTagValues;
+    }
+
+    public void setMetricsMaxTagValues(int metricsMaxTagValues) {
+        this.metricsMaxTagValues = metricsMaxTagValues;
+    }
+
+    public String getEmbeddedJournal() {
+        return embeddedJournal;
+    }
+
+    public void setEmbeddedJournal(String embeddedJournal) {
+        this.embeddedJournal = embeddedJournal;
+    }
+
+    public int getEmbeddedCapacity() {
+        return embeddedCapacity;
+    }
+
+    public void setEmbeddedCapacity(int embeddedCapacity) {
+        this.embeddedCapacity = embeddedCapacity;
+    }
+
+    public long getEmbeddedSafetyMargin() {
+        return embeddedSafetyMargin;
+    }
+
+    public void setEmbeddedSafetyMargin(long embeddedSafetyMargin) {
+        this.embeddedSafetyMargin = embeddedSafetyMargin;
+    }
+
+    public long getEmbeddedFlushInterval() {
+        return embeddedFlushInterval;
+    }
+
+    public void setEmbeddedFlushInterval(long embeddedFlushInterval) {
+        this.embeddedFlushInterval = embeddedFlushInterval;
+    }
+
+    public List<SerialConfig> getEmbeddedConfigs() {
+        return embeddedConfigs;
+    }
+
+    public void setEmbeddedConfigs(List<SerialConfig> embeddedConfigs) {
+        this.embeddedConfigs = embeddedConfigs;
+    }
 }
@@ -0,0 +1,92 @@
+package com.changhong.sei.serial.sdk;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 分片计数器，SDK和给号服务共用
+ * <p>
+ * 单个当前值key受限于一个redis核心(集群模式下固定在一个slot)，高频配置可以拆分为多个分片key并行自增。
+ * 分片按编号交错划分：共n个分片时，第i个分片(从0开始)只发放 (编号 - 1) % n == i 的编号，
+ * 分片key中保存该分片已发放的编号个数，分片之间的编号互不重复，按最大编号循环时也不超出序号位数；
+ * 同一分片一次申请的多个编号间隔为n
+ */
+public final class SerialShards {
+
+    /**
+     * 分片数量上限
+     */
+    public static final int MAX_SHARD_COUNT = 1024;
+
+    /**
+     * 本节点的分片偏移，不同节点的同一线程优先使用不同分片
+     */
+    private static final int NODE_OFFSET = ThreadLocalRandom.current().nextInt(MAX_SHARD_COUNT);
+
+    private SerialShards() {
+    }
+
+    /**
+     * 配置的分片数量，为空或小于等于1时不分片
+     */
+    public static int getShardCount(Integer shardCount) {
+        return Objects.isNull(shardCount) || shardCount < 1 ? 1 : Math.min(shardCount, MAX_SHARD_COUNT);
+    }
+
+    /**
+     * 为当前线程选择分片，同一线程固定使用同一分片，节点内的线程分散到各分片
+     *
+     * @param shards 分片数量
+     * @return 分片序号
+     */
+    public static int select(int shards) {
+        return shards <= 1 ? 0 : (int) Math.floorMod(NODE_OFFSET + Thread.currentThread().getId(), (long) shards);
+    }
+
+    /**
+     * 分片的当前值key，不使用hash tag，集群模式下分散到不同slot
+     *
+     * @param valueKey 当前值key
+     * @param shard    分片序号
+     * @return 分片key
+     */
+    public static String getShardKey(String valueKey, int shard) {
+        return valueKey + ":" + shard;
+    }
+
+    /**
+     * 编号不超过issued时，分片已发放的编号个数
+     *
+     * @param issued 已发放的最大编号
+     * @param shard  分片序号
+     * @param shards 分片数量
+     * @return 分片计数
+     */
+    public static long toCounter(long issued, int shard, int shards) {
+        return issued > shard ? (issued - shard - 1) / shards + 1 : 0L;
+    }
+
+    /**
+     * 分片计数对应的编号
+     *
+     * @param counter 分片计数
+     * @param shard   分片序号
+     * @param shards  分片数量
+     * @return 编号
+     */
+    public static long toNumber(long counter, int shard, int shards) {
+        return (counter - 1) * shards + shard + 1;
+    }
+
+    /**
+     * 一次申请的count个编号中的第一个
+     *
+     * @param last   最后一个编号
+     * @param count  数量
+     * @param shards 分片数量，即编号间隔
+     * @return 第一个编号
+     */
+    public static long first(long last, int count, int shards) {
+        return last - (long) (count - 1) * shards;
+    }
+}
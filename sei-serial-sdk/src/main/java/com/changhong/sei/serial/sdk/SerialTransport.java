@@ -0,0 +1,29 @@
+package com.changhong.sei.serial.sdk;
+
+/**
+ * SDK访问给号服务的http传输层，默认实现为 {@link HttpSerialTransport}，
+ * 可注册自定义的bean替换(如使用连接池的http客户端)
+ */
+public interface SerialTransport {
+
+    /**
+     * 发送请求并解析响应
+     *
+     * @param url          请求地址
+     * @param method       请求方法，GET或POST
+     * @param body         请求体，按json序列化，为null时不发送请求体
+     * @param responseType 响应类型，String时直接返回响应文本，其他类型按json解析
+     * @param authToken    请求token
+     * @param <T>          响应类型
+     * @return 响应结果，请求失败时返回null
+     */
+    <T> T execute(String url, String method, Object body, Class<T> responseType, String authToken);
+
+    default <T> T get(String url, Class<T> responseType, String authToken) {
+        return execute(url, "GET", null, responseType, authToken);
+    }
+
+    default <T> T post(String url, Object body, Class<T> responseType, String authToken) {
+        return execute(url, "POST", body, responseType, authToken);
+    }
+}
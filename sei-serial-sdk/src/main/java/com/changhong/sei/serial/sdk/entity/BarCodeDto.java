@@ -1,6 +1,7 @@
 package com.changhong.sei.serial.sdk.entity;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -24,6 +25,11 @@ public class BarCodeDto implements Serializable {
      */
     private String referenceId;
 
+    /***
+     * 批量生成时的关联id列表
+     */
+    private List<String> referenceIds;
+
     /***
      * 隔离码
      */
@@ -50,6 +56,14 @@ public class BarCodeDto implements Serializable {
         this.referenceId = referenceId;
     }
 
+    public List<String> getReferenceIds() {
+        return referenceIds;
+    }
+
+    public void setReferenceIds(List<String> referenceIds) {
+        this.referenceIds = referenceIds;
+    }
+
     public Map<String, String> getExpressionParam() {
         return expressionParam;
     }
@@ -71,6 +85,7 @@ public class BarCodeDto implements Serializable {
         return "BarCodeDto{" +
                 "classPath='" + classPath + '\'' +
                 ", referenceId='" + referenceId + '\'' +
+                ", referenceIds=" + referenceIds +
                 ", isolation='" + isolation + '\'' +
                 ", expressionParam=" + expressionParam +
                 '}';
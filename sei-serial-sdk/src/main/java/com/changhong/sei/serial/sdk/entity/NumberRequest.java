@@ -0,0 +1,103 @@
+package com.changhong.sei.serial.sdk.entity;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 实现功能：一次获取多个配置编号时单个配置的请求参数
+ */
+public class NumberRequest implements Serializable {
+
+    private static final long serialVersionUID = 4212709253318842947L;
+
+    /**
+     * 类路径
+     */
+    private String classPath;
+
+    /***
+     * 隔离码
+     */
+    private String isolation;
+
+    /**
+     * 数量
+     */
+    private int count = 1;
+
+    /**
+     * 表达式参数
+     */
+    private Map<String, String> param;
+
+    /**
+     * 表名，redis中没有当前值时用于从数据库校准
+     */
+    private String tableName;
+
+    public NumberRequest() {
+    }
+
+    public NumberRequest(String classPath, int count) {
+        this.classPath = classPath;
+        this.count = count;
+    }
+
+    public NumberRequest(String classPath, int count, Map<String, String> param, String isolation) {
+        this.classPath = classPath;
+        this.count = count;
+        this.param = param;
+        this.isolation = isolation;
+    }
+
+    public String getClassPath() {
+        return classPath;
+    }
+
+    public void setClassPath(String classPath) {
+        this.classPath = classPath;
+    }
+
+    public String getIsolation() {
+        return isolation;
+    }
+
+    public void setIsolation(String isolation) {
+        this.isolation = isolation;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Map<String, String> getParam() {
+        return param;
+    }
+
+    public void setParam(Map<String, String> param) {
+        this.param = param;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    @Override
+    public String toString() {
+        return "NumberRequest{" +
+                "classPath='" + classPath + '\'' +
+                ", isolation='" + isolation + '\'' +
+                ", count=" + count +
+                ", param=" + param +
+                ", tableName='" + tableName + '\'' +
+                '}';
+    }
+}
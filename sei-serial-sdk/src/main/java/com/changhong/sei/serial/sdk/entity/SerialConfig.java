@@ -36,6 +36,16 @@ public class SerialConfig {
 
     private CycleStrategy cycleStrategy = CycleStrategy.MAX_CYCLE;
 
+    /**
+     * 计数器分片数量，为空或1时不分片
+     */
+    private Integer shardCount;
+
+    /**
+     * 是否连续编号，启用后可以预留编号，撤销或超时未确认的编号会被再次发放
+     */
+    private Boolean gapless = Boolean.FALSE;
+
     public String getEntityClassName() {
         return entityClassName;
     }
@@ -100,6 +110,22 @@ public class SerialConfig {
         this.cycleStrategy = cycleStrategy;
     }
 
+    public Integer getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(Integer shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public Boolean getGapless() {
+        return gapless;
+    }
+
+    public void setGapless(Boolean gapless) {
+        this.gapless = gapless;
+    }
+
     @Override
     public String toString() {
         return "SerialConfig{" +
@@ -109,6 +135,8 @@ public class SerialConfig {
                 ", initialSerial=" + initialSerial +
                 ", genFlag=" + genFlag +
                 ", cycleStrategy=" + cycleStrategy +
+                ", shardCount=" + shardCount +
+                ", gapless=" + gapless +
                 '}';
     }
 }
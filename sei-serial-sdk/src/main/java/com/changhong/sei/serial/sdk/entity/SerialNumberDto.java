@@ -0,0 +1,74 @@
+package com.changhong.sei.serial.sdk.entity;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 实现功能：批量获取编号的请求参数
+ */
+public class SerialNumberDto implements Serializable {
+
+    private static final long serialVersionUID = -3186540237195478315L;
+
+    /**
+     * 类路径
+     */
+    private String classPath;
+
+    /***
+     * 隔离码
+     */
+    private String isolation;
+
+    /**
+     * 数量
+     */
+    private int count = 1;
+
+    /**
+     * 表达式参数
+     */
+    private Map<String, String> expressionParam;
+
+    public String getClassPath() {
+        return classPath;
+    }
+
+    public void setClassPath(String classPath) {
+        this.classPath = classPath;
+    }
+
+    public String getIsolation() {
+        return isolation;
+    }
+
+    public void setIsolation(String isolation) {
+        this.isolation = isolation;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Map<String, String> getExpressionParam() {
+        return expressionParam;
+    }
+
+    public void setExpressionParam(Map<String, String> expressionParam) {
+        this.expressionParam = expressionParam;
+    }
+
+    @Override
+    public String toString() {
+        return "SerialNumberDto{" +
+                "classPath='" + classPath + '\'' +
+                ", isolation='" + isolation + '\'' +
+                ", count=" + count +
+                ", expressionParam=" + expressionParam +
+                '}';
+    }
+}
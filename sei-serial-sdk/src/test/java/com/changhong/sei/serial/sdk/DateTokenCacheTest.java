@@ -0,0 +1,159 @@
+package com.changhong.sei.serial.sdk;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.Assert.*;
+
+public class DateTokenCacheTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    /**
+     * 可以拨动的时钟
+     */
+    private static final class MutableClock extends Clock {
+
+        private long millis;
+
+        private MutableClock(LocalDateTime time) {
+            set(time);
+        }
+
+        private void set(LocalDateTime time) {
+            millis = time.atZone(ZONE).toInstant().toEpochMilli();
+        }
+
+        private void plusMillis(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+
+    private static String format(String pattern, MutableClock clock) {
+        return DateTimeFormatter.ofPattern(pattern).format(LocalDateTime.ofInstant(clock.instant(), ZONE));
+    }
+
+    @Test
+    public void getTickUnit() {
+        assertEquals(ChronoUnit.DAYS, DateTokenCache.getTickUnit("YYYYMMDD"));
+        assertEquals(ChronoUnit.DAYS, DateTokenCache.getTickUnit("yyyy"));
+        assertEquals(ChronoUnit.HOURS, DateTokenCache.getTickUnit("YYYYMMDDHH"));
+        assertEquals(ChronoUnit.MINUTES, DateTokenCache.getTickUnit("YYYYMMDDHHmm"));
+        assertEquals(ChronoUnit.SECONDS, DateTokenCache.getTickUnit("YYYYMMDDHHmmss"));
+        assertEquals(ChronoUnit.MILLIS, DateTokenCache.getTickUnit("YYYYMMddHHmmssSSS"));
+        // 引号中的字母不是字段
+        assertEquals(ChronoUnit.DAYS, DateTokenCache.getTickUnit("yyyy'Hms'"));
+    }
+
+    @Test
+    public void secondTickRollover() {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2026, 10, 17, 9, 5, 7));
+        DateTokenCache cache = new DateTokenCache(clock);
+        String pattern = "YYYYMMDDHHmmss";
+        assertEquals("202610290" + "090507", cache.get(pattern));
+        clock.plusMillis(999L);
+        assertEquals(format(pattern, clock), cache.get(pattern));
+        assertTrue(cache.get(pattern).endsWith("07"));
+        clock.plusMillis(1L);
+        assertTrue(cache.get(pattern).endsWith("08"));
+        // 时钟回拨后重新计算
+        clock.plusMillis(-1L);
+        assertTrue(cache.get(pattern).endsWith("07"));
+    }
+
+    @Test
+    public void millisAreNotCachedAcrossValues() {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2026, 10, 17, 9, 5, 7, 1_000_000));
+        DateTokenCache cache = new DateTokenCache(clock);
+        String pattern = "YYYYMMddHHmmssSSS";
+        for (int i = 0; i < 5; i++) {
+            assertEquals(format(pattern, clock), cache.get(pattern));
+            clock.plusMillis(1L);
+        }
+    }
+
+    @Test
+    public void hourAndMinuteRollover() {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2026, 10, 17, 9, 59, 59, 999_000_000));
+        DateTokenCache cache = new DateTokenCache(clock);
+        assertEquals("202610290" + "09", cache.get("YYYYMMDDHH"));
+        assertEquals("202610290" + "0959", cache.get("YYYYMMDDHHmm"));
+        clock.plusMillis(1L);
+        assertEquals("202610290" + "10", cache.get("YYYYMMDDHH"));
+        assertEquals("202610290" + "1000", cache.get("YYYYMMDDHHmm"));
+    }
+
+    @Test
+    public void dayRolloverAtMidnight() {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2026, 10, 17, 23, 59, 59, 999_000_000));
+        DateTokenCache cache = new DateTokenCache(clock);
+        assertEquals("20261017", cache.get("yyyyMMdd"));
+        clock.plusMillis(1L);
+        assertEquals("20261018", cache.get("yyyyMMdd"));
+    }
+
+    @Test
+    public void yearEndBoundary() {
+        // 2024-12-31为周二，所在周的大部分日期在2025年，按周计算的年份YYYY为2025，yyyy为2024
+        MutableClock clock = new MutableClock(LocalDateTime.of(2024, 12, 30, 12, 0));
+        DateTokenCache cache = new DateTokenCache(clock);
+        assertEquals("2024", cache.get("yyyy"));
+        assertEquals("2025", cache.get("YYYY"));
+        assertEquals(format("YYYYMMDD", clock), cache.get("YYYYMMDD"));
+
+        clock.set(LocalDateTime.of(2024, 12, 31, 23, 59, 59, 999_000_000));
+        assertEquals("2024", cache.get("yyyy"));
+        assertEquals("2025", cache.get("YYYY"));
+        assertEquals("202412", cache.get("yyyyMM"));
+        assertEquals(format("YYYYMMDD", clock), cache.get("YYYYMMDD"));
+
+        clock.plusMillis(1L);
+        assertEquals("2025", cache.get("yyyy"));
+        assertEquals("2025", cache.get("YYYY"));
+        assertEquals("202501", cache.get("yyyyMM"));
+        assertEquals("2025" + "01" + "01", cache.get("YYYYMMDD"));
+    }
+
+    @Test
+    public void explicitMillisUseSameInstant() {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2026, 10, 17, 23, 59, 59, 999_000_000));
+        DateTokenCache cache = new DateTokenCache(clock);
+        long now = cache.millis();
+        clock.plusMillis(1L);
+        // 同一编号中的日期片段使用同一时间，不会出现跨天的组合
+        assertEquals("20261017", cache.get("yyyyMMdd", now));
+        assertEquals("20261017" + "23", cache.get("yyyyMMddHH", now));
+        assertEquals("20261018", cache.get("yyyyMMdd"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void clockIsRequired() {
+        new DateTokenCache(null);
+    }
+}
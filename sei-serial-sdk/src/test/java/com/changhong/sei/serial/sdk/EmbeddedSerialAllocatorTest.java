@@ -0,0 +1,137 @@
+package com.changhong.sei.serial.sdk;
+
+import com.changhong.sei.serial.sdk.entity.CycleStrategy;
+import com.changhong.sei.serial.sdk.entity.IsolationRecordDto;
+import com.changhong.sei.serial.sdk.entity.SerialConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class EmbeddedSerialAllocatorTest {
+
+    private static final String CLASS_PATH = "com.changhong.sei.test.entity.Order";
+
+    private static final long SAFETY_MARGIN = 10L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SerialConfig newConfig(String expression, CycleStrategy cycleStrategy) {
+        SerialConfig config = new SerialConfig();
+        config.setEntityClassName(CLASS_PATH);
+        config.setExpressionConfig(expression);
+        config.setInitialSerial(1L);
+        config.setCycleStrategy(cycleStrategy);
+        return config;
+    }
+
+    private EmbeddedSerialAllocator open(File journal, SerialConfig config) throws IOException {
+        EmbeddedSerialAllocator allocator = new EmbeddedSerialAllocator(journal, 16, SAFETY_MARGIN, 60000L);
+        allocator.register(config);
+        return allocator;
+    }
+
+    private static IsolationRecordDto record(SerialConfig config, String dateString) {
+        IsolationRecordDto recordDto = new IsolationRecordDto();
+        recordDto.setSerialNumberConfig(config);
+        recordDto.setDateString(dateString);
+        return recordDto;
+    }
+
+    @Test
+    public void getRecord() throws IOException {
+        SerialConfig config = newConfig("PO#{0000}", CycleStrategy.MAX_CYCLE);
+        config.setGenFlag(Boolean.TRUE);
+        try (EmbeddedSerialAllocator allocator = open(new File(folder.getRoot(), "serial.journal"), config)) {
+            IsolationRecordDto recordDto = allocator.getRecord(CLASS_PATH, "A01");
+            assertSame(config, recordDto.getSerialNumberConfig());
+            assertEquals("A01", recordDto.getIsolationCode());
+            // 内嵌模式下编号都在本地生成
+            assertFalse(config.getGenFlag());
+            assertNull(allocator.getRecord("com.changhong.sei.test.entity.Other", null));
+        }
+    }
+
+    @Test
+    public void restartSkipsSafetyMargin() throws IOException {
+        File journal = new File(folder.getRoot(), "serial.journal");
+        SerialConfig config = newConfig("PO#{0000}", CycleStrategy.MAX_CYCLE);
+        try (EmbeddedSerialAllocator allocator = open(journal, config)) {
+            IsolationRecordDto recordDto = record(config, "");
+            assertEquals(1L, allocator.allocate(CLASS_PATH, recordDto, null, 1));
+            assertEquals(4L, allocator.allocate(CLASS_PATH, recordDto, null, 3));
+            // 隔离码分别计数
+            assertEquals(1L, allocator.allocate(CLASS_PATH, recordDto, "A01", 1));
+        }
+        try (EmbeddedSerialAllocator allocator = open(journal, config)) {
+            IsolationRecordDto recordDto = record(config, "");
+            assertEquals(4L + SAFETY_MARGIN + 1, allocator.allocate(CLASS_PATH, recordDto, null, 1));
+            assertEquals(1L + SAFETY_MARGIN + 1, allocator.allocate(CLASS_PATH, recordDto, "A01", 1));
+        }
+    }
+
+    @Test
+    public void wrapAtMaxSerial() throws IOException {
+        SerialConfig config = newConfig("PO#{00}", CycleStrategy.MAX_CYCLE);
+        config.setInitialSerial(98L);
+        try (EmbeddedSerialAllocator allocator = open(new File(folder.getRoot(), "serial.journal"), config)) {
+            IsolationRecordDto recordDto = record(config, "");
+            assertEquals(98L, allocator.allocate(CLASS_PATH, recordDto, null, 1));
+            assertEquals(99L, allocator.allocate(CLASS_PATH, recordDto, null, 1));
+            assertEquals(1L, allocator.allocate(CLASS_PATH, recordDto, null, 1));
+            // 一次申请的编号不跨越最大编号
+            assertEquals(3L, allocator.allocate(CLASS_PATH, recordDto, null, 2));
+        }
+    }
+
+    @Test
+    public void restartNearMaxWrapsNormally() throws IOException {
+        File journal = new File(folder.getRoot(), "serial.journal");
+        SerialConfig config = newConfig("PO#{00}", CycleStrategy.MAX_CYCLE);
+        config.setInitialSerial(95L);
+        try (EmbeddedSerialAllocator allocator = open(journal, config)) {
+            assertEquals(95L, allocator.allocate(CLASS_PATH, record(config, ""), null, 1));
+        }
+        // 95 + 10 超过99，停在最大编号，下一次分配从1开始
+        try (EmbeddedSerialAllocator allocator = open(journal, config)) {
+            assertEquals(1L, allocator.allocate(CLASS_PATH, record(config, ""), null, 1));
+            assertEquals(2L, allocator.allocate(CLASS_PATH, record(config, ""), null, 1));
+        }
+    }
+
+    @Test
+    public void newCycleStartsFromInitialSerial() throws IOException {
+        File journal = new File(folder.getRoot(), "serial.journal");
+        SerialConfig config = newConfig("PO${yyyyMMdd}#{0000}", CycleStrategy.DAY_CYCLE);
+        try (EmbeddedSerialAllocator allocator = open(journal, config)) {
+            assertEquals(1L, allocator.allocate(CLASS_PATH, record(config, "20261016"), null, 1));
+            assertEquals(2L, allocator.allocate(CLASS_PATH, record(config, "20261016"), null, 1));
+            assertEquals(1L, allocator.allocate(CLASS_PATH, record(config, "20261017"), null, 1));
+            // 已切换到新周期后，旧周期的请求按新周期分配
+            assertEquals(2L, allocator.allocate(CLASS_PATH, record(config, "20261016"), null, 1));
+        }
+        try (EmbeddedSerialAllocator allocator = open(journal, config)) {
+            assertEquals(2L + SAFETY_MARGIN + 1, allocator.allocate(CLASS_PATH, record(config, "20261017"), null, 1));
+            // 新周期的记录不受重启前其他周期的影响
+            assertEquals(1L, allocator.allocate(CLASS_PATH, record(config, "20261018"), null, 1));
+        }
+    }
+
+    @Test
+    public void outdatedCyclesReleaseJournalSlots() throws IOException {
+        SerialConfig config = newConfig("PO${yyyyMMdd}#{0000}", CycleStrategy.DAY_CYCLE);
+        try (EmbeddedSerialAllocator allocator = new EmbeddedSerialAllocator(new File(folder.getRoot(), "serial.journal"),
+                2, SAFETY_MARGIN, 60000L)) {
+            allocator.register(config);
+            // 只有2个槽位，释放之前周期的槽位后才能一直切换周期
+            for (int day = 10; day < 20; day++) {
+                assertEquals(1L, allocator.allocate(CLASS_PATH, record(config, "202610" + day), null, 1));
+            }
+        }
+    }
+}
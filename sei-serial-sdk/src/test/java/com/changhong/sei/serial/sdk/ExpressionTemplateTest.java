@@ -0,0 +1,152 @@
+package com.changhong.sei.serial.sdk;
+
+import org.junit.Test;
+
+import java.text.NumberFormat;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * 编译后的模板与改造前按正则替换的实现逐个对比
+ */
+public class ExpressionTemplateTest {
+
+    private static final Pattern PARAM_PATTERN = Pattern.compile("(?<=\\$\\{).*?(?=})");
+
+    private static final Pattern SERIAL_PATTERN = Pattern.compile("(?<=#\\{).*?(?=})");
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+            "PO${YYYYMMDD}#{000000}",
+            "PO${yyyymmdd}#{0000}",
+            "${YYYY}-${YYYYMM}-${YYYYMMDDHH}-#{00}",
+            "A${YYYYMMDDHHmm}B${YYYYMMDDHHmmss}C#{000}D",
+            "T${YYYYMMddHHmmssSSS}#{0000}",
+            "${dept}${YYYYMM}#{00000}",
+            "${dept}-${type}-#{0000}-${dept}",
+            "NO#{0000}",
+            "NO#{0000}/#{0000}",
+            "NO#{0000}#{00}",
+            "#{}X",
+            "NO${unclosed#{0000}",
+            "NO${unclosed#{00}#{00}",
+            "NO#{0000",
+            "PLAIN",
+            "中文${YYYY}编号#{000}");
+
+    private static final List<Long> SERIALS = Arrays.asList(0L, 1L, 42L, 9999L, 12345L, 123456789L);
+
+    /**
+     * 改造前的实现，日期取自指定时间
+     */
+    private static String legacyParserExpression(String expressionConfig, Long currentSerial, Map<String, String> param,
+                                                 LocalDateTime now) {
+        Matcher serialMatcher = SERIAL_PATTERN.matcher(expressionConfig);
+        String serialItem = serialMatcher.find() ? serialMatcher.group(0) : "0";
+        Matcher paramMatcher = PARAM_PATTERN.matcher(expressionConfig);
+        while (paramMatcher.find()) {
+            String paramItem = paramMatcher.group(0);
+            if (SerialUtils.isDateParam(paramItem)) {
+                String date = DateTimeFormatter.ofPattern(paramItem).format(now);
+                expressionConfig = expressionConfig.replace("${" + paramItem + "}", date);
+            } else if (param != null && !param.isEmpty()) {
+                expressionConfig = expressionConfig.replace("${" + paramItem + "}", String.valueOf(param.get(paramItem)));
+            } else {
+                expressionConfig = expressionConfig.replace("${" + paramItem + "}", paramItem);
+            }
+            paramMatcher = PARAM_PATTERN.matcher(expressionConfig);
+        }
+        NumberFormat numberFormat = NumberFormat.getNumberInstance();
+        numberFormat.setGroupingUsed(false);
+        numberFormat.setMinimumIntegerDigits(serialItem.length());
+        numberFormat.setMaximumIntegerDigits(serialItem.length());
+        return expressionConfig.replace("#{" + serialItem + "}", numberFormat.format(currentSerial));
+    }
+
+    private static List<Map<String, String>> params() {
+        Map<String, String> full = new HashMap<>();
+        full.put("dept", "D01");
+        full.put("type", "T");
+        Map<String, String> partial = new HashMap<>();
+        partial.put("dept", "D02");
+        return Arrays.asList(null, Collections.emptyMap(), full, partial);
+    }
+
+    private static void assertParity(LocalDateTime time) {
+        DateTokenCache dateTokens = new DateTokenCache(Clock.fixed(time.atZone(ZONE).toInstant(), ZONE));
+        for (String expression : EXPRESSIONS) {
+            ExpressionTemplate template = ExpressionTemplate.compile(expression);
+            for (Map<String, String> param : params()) {
+                for (long serial : SERIALS) {
+                    String expected = legacyParserExpression(expression, serial, param, time);
+                    String message = expression + " " + param + " " + serial + " " + time;
+                    assertEquals(message, expected, template.render(serial, param, dateTokens));
+                    StringBuilder builder = new StringBuilder("prefix:");
+                    template.renderTo(builder, serial, param, dateTokens);
+                    assertEquals(message, "prefix:" + expected, builder.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parityWithRegexImplementation() {
+        assertParity(LocalDateTime.of(2026, 10, 17, 9, 5, 7, 123_000_000));
+        // 年末：YYYY为按周计算的年份，与改造前保持一致
+        assertParity(LocalDateTime.of(2024, 12, 31, 23, 59, 59, 999_000_000));
+        assertParity(LocalDateTime.of(2025, 1, 1, 0, 0));
+        assertParity(LocalDateTime.of(2028, 2, 29, 12, 0));
+    }
+
+    @Test
+    public void serialUtilsUsesTemplate() {
+        Map<String, String> param = Collections.singletonMap("dept", "D01");
+        for (String expression : Arrays.asList("${dept}-#{0000}", "NO#{0000}", "NO#{0000}/#{0000}", "PLAIN")) {
+            for (long serial : SERIALS) {
+                String expected = legacyParserExpression(expression, serial, param, LocalDateTime.now());
+                assertEquals(expected, SerialUtils.parserExpression(expression, serial, param));
+                assertEquals(expected, SerialUtils.parserExpression(expression, Long.valueOf(serial),
+                        SerialUtils.getSerialItem(expression), param));
+            }
+        }
+    }
+
+    @Test
+    public void getSerialItem() {
+        for (String expression : EXPRESSIONS) {
+            Matcher matcher = SERIAL_PATTERN.matcher(expression);
+            String expected = matcher.find() ? matcher.group(0) : "0";
+            assertEquals(expression, expected, ExpressionTemplate.compile(expression).getSerialItem());
+        }
+    }
+
+    @Test
+    public void getCalibrationPrefix() {
+        // DD为一年中的第几天，YYYYMMDD可能有9位
+        String day = DateTimeFormatter.ofPattern("YYYYMMDD").format(LocalDateTime.now()).substring(0, 8);
+        assertEquals("PO" + day, ExpressionTemplate.compile("PO${YYYYMMDD}#{0000}").getCalibrationPrefix(8));
+        assertEquals("PO" + day.substring(0, 6), ExpressionTemplate.compile("PO${YYYYMMDD}#{0000}").getCalibrationPrefix(6));
+        // 不循环时日期不计入前缀
+        assertEquals("PO", ExpressionTemplate.compile("PO${YYYYMMDD}#{0000}").getCalibrationPrefix(0));
+        // 遇到参数时截止
+        assertEquals("PO-", ExpressionTemplate.compile("PO-${dept}${YYYYMM}#{0000}").getCalibrationPrefix(6));
+        assertEquals("NO", ExpressionTemplate.compile("NO#{0000}").getCalibrationPrefix(0));
+    }
+
+    @Test
+    public void compileIsCached() {
+        assertSame(ExpressionTemplate.compile("CACHE#{0000}"), ExpressionTemplate.compile("CACHE#{0000}"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.changhong.sei.serial.sdk;
+
+import org.junit.Assume;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 脚本测试使用的redis，地址通过系统属性 sei.serial.test.redis.host、sei.serial.test.redis.port 指定，
+ * 默认 localhost:6379；连接不上时跳过测试
+ */
+final class RedisTestSupport {
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private final StringRedisTemplate template;
+
+    /**
+     * 本次测试的key前缀，测试结束时删除
+     */
+    private final String prefix = "sei-serial-test:" + UUID.randomUUID() + ":";
+
+    private RedisTestSupport(LettuceConnectionFactory connectionFactory, StringRedisTemplate template) {
+        this.connectionFactory = connectionFactory;
+        this.template = template;
+    }
+
+    static RedisTestSupport connect() {
+        String host = System.getProperty("sei.serial.test.redis.host", "localhost");
+        int port = Integer.getInteger("sei.serial.test.redis.port", 6379);
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
+        template.afterPropertiesSet();
+        try {
+            template.hasKey("sei-serial-test");
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            Assume.assumeNoException("redis " + host + ":" + port + " 不可用", e);
+        }
+        return new RedisTestSupport(connectionFactory, template);
+    }
+
+    StringRedisTemplate template() {
+        return template;
+    }
+
+    String key(String name) {
+        return prefix + name;
+    }
+
+    void close() {
+        Set<String> keys = template.keys("*" + prefix + "*");
+        if (keys != null && !keys.isEmpty()) {
+            template.delete(keys);
+        }
+        connectionFactory.destroy();
+    }
+}
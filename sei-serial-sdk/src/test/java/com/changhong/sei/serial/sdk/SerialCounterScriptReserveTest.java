@@ -0,0 +1,119 @@
+package com.changhong.sei.serial.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SerialCounterScriptReserveTest {
+
+    private static final long TTL = 60000L;
+
+    private RedisTestSupport redis;
+
+    private String key;
+
+    @Before
+    public void setUp() {
+        redis = RedisTestSupport.connect();
+        key = SerialUtils.getGaplessValueKey(redis.key("gapless"));
+    }
+
+    @After
+    public void tearDown() {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    private SerialCounterScript.Result reserve(long ttlMillis, String token) {
+        return SerialCounterScript.reserve(redis.template(), new SerialCounterScript.Increment(key, 1, 0L, 0L, 0L),
+                ttlMillis, token);
+    }
+
+    private void expire(String member) {
+        assertNotNull(redis.template().opsForZSet().score(SerialCounterScript.getReservedKey(key), member));
+        redis.template().opsForZSet().add(SerialCounterScript.getReservedKey(key), member, 0D);
+    }
+
+    @Test
+    public void absentWithoutSeed() {
+        SerialCounterScript.Result result = SerialCounterScript.reserve(redis.template(),
+                new SerialCounterScript.Increment(key, 1, null, 0L, 0L), TTL, "t");
+        assertTrue(result.isAbsent());
+        assertEquals(Long.valueOf(0L), redis.template().opsForZSet().zCard(SerialCounterScript.getReservedKey(key)));
+    }
+
+    @Test
+    public void commitRemovesReservation() {
+        SerialCounterScript.Result result = reserve(TTL, "a");
+        assertEquals(1L, result.getValue());
+        assertTrue(result.isInitialized());
+        assertTrue(SerialCounterScript.commit(redis.template(), key, 1L, "a"));
+        // 重复确认、撤销已确认的编号都不生效
+        assertFalse(SerialCounterScript.commit(redis.template(), key, 1L, "a"));
+        assertFalse(SerialCounterScript.rollback(redis.template(), key, 1L, "a"));
+        assertEquals(2L, reserve(TTL, "b").getValue());
+    }
+
+    @Test
+    public void rollbackReturnsNumberForReuse() {
+        assertEquals(1L, reserve(TTL, "a").getValue());
+        assertEquals(2L, reserve(TTL, "b").getValue());
+        assertEquals(3L, reserve(TTL, "c").getValue());
+        // 令牌不匹配时不撤销
+        assertFalse(SerialCounterScript.rollback(redis.template(), key, 2L, "c"));
+        assertTrue(SerialCounterScript.rollback(redis.template(), key, 2L, "b"));
+        assertTrue(SerialCounterScript.rollback(redis.template(), key, 1L, "a"));
+
+        // 优先发放最小的归还编号
+        SerialCounterScript.Result reused = reserve(TTL, "d");
+        assertEquals(1L, reused.getValue());
+        assertTrue(reused.isReused());
+        assertEquals(2L, reserve(TTL, "e").getValue());
+        SerialCounterScript.Result next = reserve(TTL, "f");
+        assertEquals(4L, next.getValue());
+        assertFalse(next.isReused());
+
+        // 撤销前持有的令牌不能确认再次发放的编号
+        assertFalse(SerialCounterScript.commit(redis.template(), key, 1L, "a"));
+        assertTrue(SerialCounterScript.commit(redis.template(), key, 1L, "d"));
+    }
+
+    @Test
+    public void expiredReservationIsReclaimed() {
+        assertEquals(1L, reserve(TTL, "a").getValue());
+        assertEquals(2L, reserve(TTL, "b").getValue());
+        // 直接把预留的到期时间改为过去，不依赖等待
+        expire("1:a");
+        expire("2:b");
+
+        // 两个过期预留都被回收，1再次发放给新令牌
+        SerialCounterScript.Result reused = reserve(TTL, "c");
+        assertEquals(1L, reused.getValue());
+        assertTrue(reused.isReused());
+        assertFalse(SerialCounterScript.commit(redis.template(), key, 1L, "a"));
+        assertFalse(SerialCounterScript.rollback(redis.template(), key, 1L, "a"));
+        assertTrue(SerialCounterScript.commit(redis.template(), key, 1L, "c"));
+
+        // 2已回收但还未再次发放，原令牌确认时取回
+        assertTrue(SerialCounterScript.commit(redis.template(), key, 2L, "b"));
+        assertEquals(3L, reserve(TTL, "d").getValue());
+    }
+
+    @Test
+    public void directIssueWithoutReservation() {
+        assertEquals(1L, reserve(0L, "").getValue());
+        assertEquals(Long.valueOf(0L), redis.template().opsForZSet().zCard(SerialCounterScript.getReservedKey(key)));
+        assertEquals(2L, reserve(0L, "").getValue());
+    }
+
+    @Test
+    public void setsFollowCounterExpire() {
+        SerialCounterScript.reserve(redis.template(), new SerialCounterScript.Increment(key, 1, 0L, TTL, 0L), TTL, "a");
+        assertTrue(redis.template().getExpire(SerialCounterScript.getReservedKey(key)) > 0);
+        assertTrue(SerialCounterScript.rollback(redis.template(), key, 1L, "a"));
+        assertTrue(redis.template().getExpire(SerialCounterScript.getReturnedKey(key)) > 0);
+    }
+}
@@ -0,0 +1,146 @@
+package com.changhong.sei.serial.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SerialCounterScriptTest {
+
+    private RedisTestSupport redis;
+
+    @Before
+    public void setUp() {
+        redis = RedisTestSupport.connect();
+    }
+
+    @After
+    public void tearDown() {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Test
+    public void absentWithoutSeed() {
+        SerialCounterScript.Result result = SerialCounterScript.increment(redis.template(), redis.key("absent"), 1, null, 0L, 0L);
+        assertTrue(result.isAbsent());
+        assertFalse(result.isInitialized());
+        assertFalse(redis.template().hasKey(redis.key("absent")));
+    }
+
+    @Test
+    public void seedThenIncrement() {
+        String key = redis.key("seed");
+        SerialCounterScript.Result first = SerialCounterScript.increment(redis.template(), key, 1, 41L, 0L, 0L);
+        assertEquals(42L, first.getValue());
+        assertTrue(first.isInitialized());
+        assertFalse(first.isWrapped());
+
+        // key已存在时忽略初始值
+        SerialCounterScript.Result second = SerialCounterScript.increment(redis.template(), key, 3, 1000L, 0L, 0L);
+        assertEquals(45L, second.getValue());
+        assertFalse(second.isInitialized());
+        assertFalse(second.isAbsent());
+    }
+
+    @Test
+    public void expireOnlyOnInitialize() {
+        String key = redis.key("ttl");
+        SerialCounterScript.increment(redis.template(), key, 1, 0L, 60000L, 0L);
+        Long ttl = redis.template().getExpire(key);
+        assertTrue(ttl > 0 && ttl <= 60);
+
+        redis.template().persist(key);
+        SerialCounterScript.increment(redis.template(), key, 1, 0L, 60000L, 0L);
+        assertEquals(Long.valueOf(-1L), redis.template().getExpire(key));
+
+        String noExpire = redis.key("no-ttl");
+        SerialCounterScript.increment(redis.template(), noExpire, 1, 0L, -1L, 0L);
+        assertEquals(Long.valueOf(-1L), redis.template().getExpire(noExpire));
+    }
+
+    @Test
+    public void wrapAtMaxKeepsTtl() {
+        String key = redis.key("wrap");
+        SerialCounterScript.Result last = SerialCounterScript.increment(redis.template(), key, 1, 98L, 60000L, 99L);
+        assertEquals(99L, last.getValue());
+        assertFalse(last.isWrapped());
+
+        SerialCounterScript.Result wrapped = SerialCounterScript.increment(redis.template(), key, 1, null, 60000L, 99L);
+        assertEquals(1L, wrapped.getValue());
+        assertTrue(wrapped.isWrapped());
+        assertFalse(wrapped.isInitialized());
+        assertTrue(redis.template().getExpire(key) > 0);
+
+        // 初始化和循环同时发生
+        SerialCounterScript.Result both = SerialCounterScript.increment(redis.template(), redis.key("wrap-init"), 2, 99L, 0L, 99L);
+        assertEquals(2L, both.getValue());
+        assertTrue(both.isInitialized());
+        assertTrue(both.isWrapped());
+    }
+
+    @Test
+    public void incrementAllKeepsOrder() {
+        List<SerialCounterScript.Increment> increments = Arrays.asList(
+                new SerialCounterScript.Increment(redis.key("a"), 1, 10L, 0L, 0L),
+                new SerialCounterScript.Increment(redis.key("b"), 5, 0L, 0L, 0L),
+                new SerialCounterScript.Increment(redis.key("absent"), 1, null, 0L, 0L));
+        List<SerialCounterScript.Result> results = SerialCounterScript.incrementAll(redis.template(), increments);
+        assertEquals(3, results.size());
+        assertEquals(11L, results.get(0).getValue());
+        assertEquals(5L, results.get(1).getValue());
+        assertTrue(results.get(2).isAbsent());
+    }
+
+    @Test
+    public void shardedIncrement() {
+        String key = redis.key("sharded");
+        int shards = 4;
+        Set<Long> numbers = new HashSet<>();
+        for (int shard = 0; shard < shards; shard++) {
+            // 已发放到10，各分片从大于10的编号开始
+            SerialCounterScript.Increment increment = new SerialCounterScript.Increment(key, 1, 10L, 0L, 0L).shard(shard, shards);
+            assertEquals(SerialShards.getShardKey(key, shard), increment.getKey());
+            for (int i = 0; i < 3; i++) {
+                long number = SerialCounterScript.increment(redis.template(), increment).getValue();
+                assertTrue(number > 10L);
+                assertEquals(shard, (number - 1) % shards);
+                assertTrue(numbers.add(number));
+            }
+        }
+        assertEquals(12, numbers.size());
+
+        // 一次申请多个编号时间隔为分片数量
+        SerialCounterScript.Increment batch = new SerialCounterScript.Increment(key, 3, 10L, 0L, 0L).shard(1, shards);
+        long last = SerialCounterScript.increment(redis.template(), batch).getValue();
+        assertEquals(last - 8, SerialShards.first(last, 3, shards));
+        assertFalse(numbers.contains(SerialShards.first(last, 3, shards)));
+    }
+
+    @Test
+    public void shardedWrapStaysWithinMax() {
+        String key = redis.key("sharded-wrap");
+        SerialCounterScript.Increment increment = new SerialCounterScript.Increment(key, 1, 97L, 0L, 99L).shard(2, 3);
+        // 分片2发放3、6、...、99，已发放到97时下一个是99
+        SerialCounterScript.Result last = SerialCounterScript.increment(redis.template(), increment);
+        assertEquals(99L, last.getValue());
+        SerialCounterScript.Result wrapped = SerialCounterScript.increment(redis.template(), increment);
+        assertTrue(wrapped.isWrapped());
+        assertEquals(3L, wrapped.getValue());
+    }
+
+    @Test
+    public void getMaxSerial() {
+        assertEquals(9999L, SerialCounterScript.getMaxSerial("0000"));
+        assertEquals(0L, SerialCounterScript.getMaxSerial(""));
+        assertEquals(0L, SerialCounterScript.getMaxSerial(null));
+        assertEquals(0L, SerialCounterScript.getMaxSerial("0000000000000000000"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.changhong.sei.serial.sdk;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SerialJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void valuesSurviveReopen() throws IOException {
+        File file = new File(folder.getRoot(), "journal/serial.journal");
+        int slot;
+        try (SerialJournal journal = new SerialJournal(file, 4)) {
+            assertNull(journal.get("a"));
+            slot = journal.put("a", 10L);
+            journal.put("b", 20L);
+            journal.write(slot, 11L);
+            assertEquals(Long.valueOf(11L), journal.get("a"));
+        }
+        // 已有文件使用文件头中的槽位数
+        try (SerialJournal journal = new SerialJournal(file, 1)) {
+            assertEquals(Long.valueOf(11L), journal.get("a"));
+            assertEquals(Long.valueOf(20L), journal.get("b"));
+            assertEquals(slot, journal.put("a", 12L));
+            journal.put("c", 30L);
+            journal.put("d", 40L);
+        }
+    }
+
+    @Test
+    public void removeIfFreesSlots() throws IOException {
+        File file = folder.newFile("serial.journal");
+        file.delete();
+        try (SerialJournal journal = new SerialJournal(file, 2)) {
+            journal.put("a:20261016", 1L);
+            journal.put("a:20261017", 2L);
+            try {
+                journal.put("b", 3L);
+                fail("槽位已满");
+            } catch (IllegalStateException e) {
+                // 期望的异常
+            }
+            journal.removeIf(key -> key.compareTo("a:20261017") < 0);
+            assertNull(journal.get("a:20261016"));
+            journal.put("b", 3L);
+        }
+        try (SerialJournal journal = new SerialJournal(file, 2)) {
+            assertNull(journal.get("a:20261016"));
+            assertEquals(Long.valueOf(2L), journal.get("a:20261017"));
+            assertEquals(Long.valueOf(3L), journal.get("b"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keyTooLong() throws IOException {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            key.append('k');
+        }
+        try (SerialJournal journal = new SerialJournal(new File(folder.getRoot(), "long.journal"), 1)) {
+            journal.put(key.toString(), 1L);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.journal");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("not a journal file".getBytes());
+        }
+        new SerialJournal(file, 1).close();
+    }
+}
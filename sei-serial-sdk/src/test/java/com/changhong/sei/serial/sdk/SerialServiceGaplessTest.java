@@ -0,0 +1,90 @@
+package com.changhong.sei.serial.sdk;
+
+import com.changhong.sei.serial.sdk.entity.CycleStrategy;
+import com.changhong.sei.serial.sdk.entity.IsolationRecordDto;
+import com.changhong.sei.serial.sdk.entity.NumberRequest;
+import com.changhong.sei.serial.sdk.entity.SerialConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SerialServiceGaplessTest {
+
+    private RedisTestSupport redis;
+
+    private SerialService serialService;
+
+    private String classPath;
+
+    @Before
+    public void setUp() {
+        redis = RedisTestSupport.connect();
+        classPath = redis.key("gapless.Entity");
+        SerialConfig config = new SerialConfig();
+        config.setEntityClassName(classPath);
+        config.setTenantCode("10044");
+        config.setExpressionConfig("G#{0000}");
+        config.setInitialSerial(1L);
+        config.setCycleStrategy(CycleStrategy.MAX_CYCLE);
+        config.setGapless(Boolean.TRUE);
+        IsolationRecordDto recordDto = new IsolationRecordDto();
+        recordDto.setIsolationCode(SerialUtils.DEFAULT_ISOLATION);
+        recordDto.setDateString("");
+        recordDto.setSerialNumberConfig(config);
+
+        serialService = new SerialService("http://serial", redis.template(), null);
+        serialService.setTransport(new SerialTransport() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T execute(String url, String method, Object body, Class<T> responseType, String authToken) {
+                return (T) recordDto;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    /**
+     * 预留1到4后撤销1和3
+     */
+    private void returnOneAndThree() {
+        SerialReservation first = serialService.reserve(classPath, null, null);
+        serialService.reserve(classPath, null, null);
+        SerialReservation third = serialService.reserve(classPath, null, null);
+        serialService.reserve(classPath, null, null);
+        assertTrue(serialService.rollback(first));
+        assertTrue(serialService.rollback(third));
+    }
+
+    @Test
+    public void batchReusesReturnedNumbers() {
+        returnOneAndThree();
+        assertEquals(Arrays.asList("G0001", "G0003", "G0005"), serialService.getNumbers(classPath, 3));
+        assertEquals("G0006", serialService.getNumber(classPath));
+    }
+
+    @Test
+    public void multiConfigReusesReturnedNumbers() {
+        returnOneAndThree();
+        List<List<String>> numbers = serialService.getNumbers(Arrays.asList(
+                new NumberRequest(classPath, 1), new NumberRequest(classPath, 2)));
+        assertEquals(Collections.singletonList("G0001"), numbers.get(0));
+        assertEquals(Arrays.asList("G0003", "G0005"), numbers.get(1));
+    }
+
+    @Test
+    public void batchWithoutReturnedNumbers() {
+        assertEquals(Arrays.asList("G0001", "G0002", "G0003"), serialService.getNumbers(classPath, 3));
+    }
+}
@@ -0,0 +1,98 @@
+package com.changhong.sei.serial.sdk;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SerialShardsTest {
+
+    @Test
+    public void getShardCount() {
+        assertEquals(1, SerialShards.getShardCount(null));
+        assertEquals(1, SerialShards.getShardCount(0));
+        assertEquals(1, SerialShards.getShardCount(-3));
+        assertEquals(8, SerialShards.getShardCount(8));
+        assertEquals(SerialShards.MAX_SHARD_COUNT, SerialShards.getShardCount(SerialShards.MAX_SHARD_COUNT + 1));
+    }
+
+    @Test
+    public void select() {
+        assertEquals(0, SerialShards.select(1));
+        assertEquals(0, SerialShards.select(0));
+        int shard = SerialShards.select(7);
+        assertTrue(shard >= 0 && shard < 7);
+        // 同一线程固定使用同一分片
+        assertEquals(shard, SerialShards.select(7));
+    }
+
+    @Test
+    public void numbersInterleaveWithoutOverlap() {
+        int shards = 4;
+        Set<Long> numbers = new HashSet<>();
+        for (int shard = 0; shard < shards; shard++) {
+            for (long counter = 1; counter <= 25; counter++) {
+                long number = SerialShards.toNumber(counter, shard, shards);
+                assertEquals(shard, (number - 1) % shards);
+                assertTrue("重复的编号 " + number, numbers.add(number));
+            }
+        }
+        // 每个分片发放25个时恰好覆盖1-100
+        for (long number = 1; number <= 100; number++) {
+            assertTrue(numbers.contains(number));
+        }
+    }
+
+    @Test
+    public void toCounterIsInverseOfToNumber() {
+        int shards = 5;
+        for (int shard = 0; shard < shards; shard++) {
+            for (long counter = 1; counter <= 50; counter++) {
+                assertEquals(counter, SerialShards.toCounter(SerialShards.toNumber(counter, shard, shards), shard, shards));
+            }
+        }
+    }
+
+    @Test
+    public void toCounterFromIssued() {
+        int shards = 4;
+        // 已发放到10：分片0发放了1、5、9，分片1发放了2、6、10，分片2发放了3、7，分片3发放了4、8
+        assertEquals(3L, SerialShards.toCounter(10L, 0, shards));
+        assertEquals(3L, SerialShards.toCounter(10L, 1, shards));
+        assertEquals(2L, SerialShards.toCounter(10L, 2, shards));
+        assertEquals(2L, SerialShards.toCounter(10L, 3, shards));
+        // 分片发放的下一个编号都大于已发放的最大编号
+        for (int shard = 0; shard < shards; shard++) {
+            long next = SerialShards.toNumber(SerialShards.toCounter(10L, shard, shards) + 1, shard, shards);
+            assertTrue(next > 10L);
+            assertTrue(next <= 10L + shards);
+        }
+        assertEquals(0L, SerialShards.toCounter(0L, 0, shards));
+        assertEquals(0L, SerialShards.toCounter(2L, 3, shards));
+    }
+
+    @Test
+    public void maxSerialIsNotExceeded() {
+        int shards = 3;
+        long max = 99L;
+        for (int shard = 0; shard < shards; shard++) {
+            long counterMax = SerialShards.toCounter(max, shard, shards);
+            assertTrue(SerialShards.toNumber(counterMax, shard, shards) <= max);
+            assertTrue(SerialShards.toNumber(counterMax + 1, shard, shards) > max);
+        }
+    }
+
+    @Test
+    public void first() {
+        assertEquals(10L, SerialShards.first(10L, 1, 4));
+        assertEquals(2L, SerialShards.first(14L, 4, 4));
+        assertEquals(8L, SerialShards.first(10L, 3, 1));
+    }
+
+    @Test
+    public void getShardKey() {
+        assertEquals("value:3", SerialShards.getShardKey("value", 3));
+    }
+}
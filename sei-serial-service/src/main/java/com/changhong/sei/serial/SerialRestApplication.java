@@ -2,6 +2,7 @@ package com.changhong.sei.serial;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * <strong>实现功能:</strong>
@@ -11,6 +12,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * @version 1.0.1 2019-12-18 10:41
  */
 @SpringBootApplication
+@EnableScheduling
 public class SerialRestApplication {
     public static void main(String[] args) {
         SpringApplication.run(SerialRestApplication.class, args);
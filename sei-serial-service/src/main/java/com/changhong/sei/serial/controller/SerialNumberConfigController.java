@@ -3,7 +3,6 @@ package com.changhong.sei.serial.controller;
 import com.changhong.sei.core.dto.ResultData;
 import com.changhong.sei.core.dto.serach.PageResult;
 import com.changhong.sei.core.dto.serach.Search;
-import com.changhong.sei.core.dto.serach.SearchFilter;
 import com.changhong.sei.core.service.bo.OperateResultWithData;
 import com.changhong.sei.serial.api.SerialNumberConfigApi;
 import com.changhong.sei.serial.dto.BarCodeAssociateDto;
@@ -13,6 +12,7 @@ import com.changhong.sei.serial.entity.SerialNumberConfig;
 import com.changhong.sei.serial.entity.enumclass.ConfigType;
 import com.changhong.sei.serial.sdk.SerialUtils;
 import com.changhong.sei.serial.sdk.entity.BarCodeDto;
+import com.changhong.sei.serial.sdk.entity.SerialNumberDto;
 import com.changhong.sei.serial.service.BarCodeAssociateService;
 import com.changhong.sei.serial.service.SerialNumberConfigService;
 import io.swagger.annotations.Api;
@@ -59,8 +59,14 @@ public class SerialNumberConfigController implements SerialNumberConfigApi {
     }
 
     @GetMapping("findByClassName")
-    public IsolationRecord findByClassName(@RequestParam String className, String isolation){
-       return serialNumberConfigService.findByClassNameAndConfigType(className, ConfigType.CODE_TYPE,isolation);
+    public IsolationRecord findByClassName(@RequestParam String className, String isolation,
+                                           @RequestParam(defaultValue = "1") Integer count){
+       return serialNumberConfigService.findByClassNameAndConfigType(className, ConfigType.CODE_TYPE,isolation,count);
+    }
+
+    @PostMapping("genNumbers")
+    public List<String> genNumbers(@RequestBody SerialNumberDto serialNumberDto){
+        return serialNumberConfigService.genNumbers(serialNumberDto);
     }
 
     @PostMapping("genAndSaveAssociate")
@@ -68,9 +74,14 @@ public class SerialNumberConfigController implements SerialNumberConfigApi {
       return serialNumberConfigService.genNumberAndSaveAssociate(barCodeDto);
     }
 
+    @PostMapping("genAndSaveAssociates")
+    public List<String> genNumbersAndSaveAssociates(@RequestBody BarCodeDto barCodeDto){
+      return serialNumberConfigService.genNumbersAndSaveAssociates(barCodeDto);
+    }
+
     @GetMapping("getReferenceIdByBarCode")
     public ResultData<BarCodeAssociateDto> getReferenceIdByBarCode(@RequestParam String barCode){
-        BarCodeAssociate barCodeAssociate = barCodeAssociateService.findByProperty("barCode",barCode);
+        BarCodeAssociate barCodeAssociate = barCodeAssociateService.findByBarCode(barCode);
         if(Objects.isNull(barCodeAssociate)){
             return ResultData.fail("未找到对应代码");
         }
@@ -91,11 +102,7 @@ public class SerialNumberConfigController implements SerialNumberConfigApi {
 
     @PostMapping("getReferenceIdsByListBarCode")
     public ResultData<List<BarCodeAssociateDto>> getReferenceIdsByListBarCode(@RequestBody List<String> barCodes){
-        SearchFilter searchFilter = new SearchFilter();
-        searchFilter.setFieldName("barCode");
-        searchFilter.setOperator(SearchFilter.Operator.IN);
-        searchFilter.setValue(barCodes);
-        List<BarCodeAssociate> barCodeAssociates = barCodeAssociateService.findByFilter(searchFilter);
+        List<BarCodeAssociate> barCodeAssociates = barCodeAssociateService.findByBarCodes(barCodes);
         if(CollectionUtils.isEmpty(barCodeAssociates)){
             return ResultData.fail("未找到对应代码");
         }
@@ -10,6 +10,9 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * <strong>实现功能:</strong>
  * <p>条码关联功能</p>
@@ -22,4 +25,13 @@ import org.springframework.transaction.annotation.Transactional;
 public interface BarCodeAssociateDao extends BaseEntityDao<BarCodeAssociate> {
 
     BarCodeAssociate findFirstByReferenceIdOrderByCreatedDateDesc(String referenceId);
+
+    BarCodeAssociate findFirstByTenantCodeAndBarCode(String tenantCode, String barCode);
+
+    @Query("select bca from BarCodeAssociate bca where bca.tenantCode = :tenantCode and bca.barCode in :barCodes")
+    List<BarCodeAssociate> findByTenantCodeAndBarCodeIn(@Param("tenantCode") String tenantCode,
+                                                        @Param("barCodes") Collection<String> barCodes);
+
+    @Query("select bca from BarCodeAssociate bca where bca.referenceId in :referenceIds order by bca.createdDate asc")
+    List<BarCodeAssociate> findByReferenceIdInOrderByCreatedDate(@Param("referenceIds") Collection<String> referenceIds);
 }
@@ -8,6 +8,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 
 /***
  * 隔离记录，每个类配置都可以进行灵活隔离
@@ -20,6 +22,8 @@ public interface IsolationRecordDao extends BaseEntityDao<IsolationRecord> {
                                                                 @Param("isolation") String isolation,
                                                                 @Param("dateString")String dateString);
 
+    List<IsolationRecord> findByConfigIdAndDateString(String configId, String dateString);
+
     @Modifying
     @Transactional
     @Query("update IsolationRecord isr set isr.currentNumber = :currentNumber where isr.id = :id")
@@ -3,12 +3,16 @@ package com.changhong.sei.serial.dao;
 import com.changhong.sei.core.dao.BaseEntityDao;
 import com.changhong.sei.serial.entity.SerialNumberConfig;
 import com.changhong.sei.serial.entity.enumclass.ConfigType;
+import com.changhong.sei.serial.entity.enumclass.CycleStrategy;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * <strong>实现功能:</strong>
  * <p>编号生成器配置数据访问接口</p>
@@ -23,4 +27,6 @@ public interface SerialNumberConfigDao extends BaseEntityDao<SerialNumberConfig>
 
     SerialNumberConfig findByEntityClassNameAndTenantCode(String name, String className);
 
+    List<SerialNumberConfig> findByActivatedTrueAndCycleStrategyIn(Collection<CycleStrategy> cycleStrategies);
+
 }
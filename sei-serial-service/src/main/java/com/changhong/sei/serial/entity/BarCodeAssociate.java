@@ -9,7 +9,12 @@ import javax.persistence.*;
 
 @Access(AccessType.FIELD)
 @Entity
-@Table(name = "bar_code_associate")
+@Table(name = "bar_code_associate", indexes = {
+        // 扫码按租户、条码查询关联id，已有库需手工执行：
+        // create index idx_bar_code_associate_tenant_bar_code on bar_code_associate (tenant_code, bar_code)
+        // 不同租户、同一租户的重复保存都可能产生相同的条码，因此不是唯一索引
+        @Index(name = "idx_bar_code_associate_tenant_bar_code", columnList = "tenant_code, bar_code")
+})
 @DynamicInsert
 @DynamicUpdate
 public class BarCodeAssociate extends BaseAuditableEntity implements ITenant {
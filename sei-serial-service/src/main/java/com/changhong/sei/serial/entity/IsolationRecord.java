@@ -33,6 +33,12 @@ public class IsolationRecord extends BaseAuditableEntity implements ITenant {
     @Transient
     private SerialNumberConfig serialNumberConfig;
 
+    /**
+     * 隔离记录消息的发送时间(毫秒)，用于统计消费延迟
+     */
+    @Transient
+    private Long sendTime;
+
     public String getConfigId() {
         return configId;
     }
@@ -73,6 +79,14 @@ public class IsolationRecord extends BaseAuditableEntity implements ITenant {
         this.serialNumberConfig = serialNumberConfig;
     }
 
+    public Long getSendTime() {
+        return sendTime;
+    }
+
+    public void setSendTime(Long sendTime) {
+        this.sendTime = sendTime;
+    }
+
     @Override
     public String toString() {
         return "IsolationRecord{" +
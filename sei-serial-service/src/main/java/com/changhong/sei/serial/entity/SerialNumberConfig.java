@@ -75,6 +75,18 @@ public class SerialNumberConfig extends BaseAuditableEntity implements ITenant {
     @Column(name = "tenant_code")
     private String tenantCode;
 
+    /**
+     * 计数器分片数量，为空或1时不分片；只用于编号频率极高的配置
+     */
+    @Column(name = "shard_count")
+    private Integer shardCount;
+
+    /**
+     * 是否连续编号，启用后SDK可以预留编号，撤销或超时未确认的编号会被再次发放；不支持服务端生成编号和分片
+     */
+    @Column(name = "gapless")
+    private Boolean gapless = Boolean.FALSE;
+
     public String getId() {
         return id;
     }
@@ -158,6 +170,22 @@ public class SerialNumberConfig extends BaseAuditableEntity implements ITenant {
         this.tenantCode = tenantCode;
     }
 
+    public Integer getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(Integer shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public Boolean getGapless() {
+        return gapless;
+    }
+
+    public void setGapless(Boolean gapless) {
+        this.gapless = gapless;
+    }
+
     public ReturnStrategy getReturnStrategy() {
         return returnStrategy;
     }
@@ -178,6 +206,8 @@ public class SerialNumberConfig extends BaseAuditableEntity implements ITenant {
                 ", cycleStrategy=" + cycleStrategy +
                 ", activated=" + activated +
                 ", tenantCode='" + tenantCode + '\'' +
+                ", shardCount=" + shardCount +
+                ", gapless=" + gapless +
                 '}';
     }
 }
@@ -1,11 +1,33 @@
 package com.changhong.sei.serial.service;
 
+import com.changhong.sei.core.context.ContextUtil;
 import com.changhong.sei.core.dao.BaseEntityDao;
 import com.changhong.sei.core.service.BaseEntityService;
+import com.changhong.sei.core.service.bo.OperateResult;
+import com.changhong.sei.core.service.bo.OperateResultWithData;
 import com.changhong.sei.serial.dao.BarCodeAssociateDao;
 import com.changhong.sei.serial.entity.BarCodeAssociate;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <strong>实现功能:</strong>
@@ -14,17 +36,186 @@ import org.springframework.stereotype.Service;
  * @author 刘松林
  */
 @Service
-public class BarCodeAssociateService extends BaseEntityService<BarCodeAssociate> {
+public class BarCodeAssociateService extends BaseEntityService<BarCodeAssociate> implements InitializingBean {
+
+    /**
+     * 批量保存时每批提交的数量
+     */
+    private static final int BATCH_SIZE = 500;
 
     @Autowired
     private BarCodeAssociateDao barCodeAssociateDao;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private BarCodeBloomFilter barCodeBloomFilter;
+
+    @Value("${sei.serial.bar-code.cache-size:100000}")
+    private long cacheSize;
+
+    @Value("${sei.serial.bar-code.cache-expire-seconds:300}")
+    private long cacheExpireSeconds;
+
+    /**
+     * 租户代码:条码 -> 条码关联关系，扫码时同一条码通常会被多次查询
+     */
+    private Cache<String, BarCodeAssociate> hotCodes;
+
+    @Override
+    public void afterPropertiesSet() {
+        hotCodes = Caffeine.newBuilder().maximumSize(cacheSize)
+                .expireAfterWrite(cacheExpireSeconds, TimeUnit.SECONDS).build();
+    }
+
     @Override
     protected BaseEntityDao<BarCodeAssociate> getDao() {
         return barCodeAssociateDao;
     }
 
+    /**
+     * 按当前租户的条码查询关联关系：先取本地缓存，布隆过滤器判断不存在时不查询数据库
+     *
+     * @param barCode 条码
+     * @return 关联关系，不存在时为null
+     */
+    public BarCodeAssociate findByBarCode(String barCode) {
+        if (StringUtils.isBlank(barCode)) {
+            return null;
+        }
+        String tenantCode = ContextUtil.getTenantCode();
+        BarCodeAssociate associate = hotCodes.getIfPresent(getCacheKey(tenantCode, barCode));
+        if (Objects.isNull(associate) && barCodeBloomFilter.mightContain(barCode)) {
+            associate = barCodeAssociateDao.findFirstByTenantCodeAndBarCode(tenantCode, barCode);
+            if (Objects.nonNull(associate)) {
+                hotCodes.put(getCacheKey(tenantCode, barCode), associate);
+            }
+        }
+        return associate;
+    }
+
+    /**
+     * 批量按当前租户的条码查询关联关系，未缓存且可能存在的条码分批IN查询
+     *
+     * @param barCodes 条码
+     * @return 存在的关联关系，按条码的顺序
+     */
+    public List<BarCodeAssociate> findByBarCodes(Collection<String> barCodes) {
+        String tenantCode = ContextUtil.getTenantCode();
+        Map<String, BarCodeAssociate> found = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String barCode : barCodes) {
+            if (StringUtils.isBlank(barCode) || found.containsKey(barCode)) {
+                continue;
+            }
+            BarCodeAssociate associate = hotCodes.getIfPresent(getCacheKey(tenantCode, barCode));
+            found.put(barCode, associate);
+            if (Objects.isNull(associate)) {
+                misses.add(barCode);
+            }
+        }
+        List<String> candidates = barCodeBloomFilter.mightContain(misses);
+        for (int from = 0; from < candidates.size(); from += BATCH_SIZE) {
+            List<String> chunk = candidates.subList(from, Math.min(from + BATCH_SIZE, candidates.size()));
+            for (BarCodeAssociate associate : barCodeAssociateDao.findByTenantCodeAndBarCodeIn(tenantCode, chunk)) {
+                found.put(associate.getBarCode(), associate);
+                hotCodes.put(getCacheKey(tenantCode, associate.getBarCode()), associate);
+            }
+        }
+        List<BarCodeAssociate> result = new ArrayList<>(found.size());
+        for (BarCodeAssociate associate : found.values()) {
+            if (Objects.nonNull(associate)) {
+                result.add(associate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 新条码先加入布隆过滤器再保存，保存后清除本节点缓存的旧关联关系
+     */
+    @Override
+    public OperateResultWithData<BarCodeAssociate> save(BarCodeAssociate associate) {
+        if (StringUtils.isNotBlank(associate.getBarCode())) {
+            barCodeBloomFilter.add(Collections.singletonList(associate.getBarCode()));
+        }
+        OperateResultWithData<BarCodeAssociate> result = super.save(associate);
+        if (StringUtils.isNotBlank(associate.getBarCode())) {
+            String tenantCode = StringUtils.isNotBlank(associate.getTenantCode())
+                    ? associate.getTenantCode() : ContextUtil.getTenantCode();
+            hotCodes.invalidate(getCacheKey(tenantCode, associate.getBarCode()));
+        }
+        return result;
+    }
+
+    @Override
+    protected OperateResult preDelete(String id) {
+        // 只能清除本节点的缓存，其他节点的缓存过期后失效
+        BarCodeAssociate associate = findOne(id);
+        if (Objects.nonNull(associate) && StringUtils.isNotBlank(associate.getBarCode())) {
+            hotCodes.invalidate(getCacheKey(associate.getTenantCode(), associate.getBarCode()));
+        }
+        return super.preDelete(id);
+    }
+
+    private static String getCacheKey(String tenantCode, String barCode) {
+        return tenantCode + ":" + barCode;
+    }
+
     public BarCodeAssociate findMaxByReferenceId(String referenceId) {
         return barCodeAssociateDao.findFirstByReferenceIdOrderByCreatedDateDesc(referenceId);
     }
+
+    /**
+     * 批量获取关联id最新的条码
+     *
+     * @param referenceIds 关联id
+     * @return 关联id -> 条码
+     */
+    public Map<String, String> findLatestBarCodes(Collection<String> referenceIds) {
+        Map<String, String> result = new HashMap<>();
+        List<String> ids = new ArrayList<>(referenceIds);
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            // 按创建时间升序，后放入的即为最新的条码
+            for (BarCodeAssociate associate : barCodeAssociateDao.findByReferenceIdInOrderByCreatedDate(chunk)) {
+                if (StringUtils.isNotBlank(associate.getBarCode())) {
+                    result.put(associate.getReferenceId(), associate.getBarCode());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量保存条码关联关系，使用jdbc批量插入，每BATCH_SIZE条刷新一次
+     *
+     * @param associates 条码关联关系
+     */
+    @Transactional
+    public void batchSave(List<BarCodeAssociate> associates) {
+        List<String> barCodes = new ArrayList<>(associates.size());
+        for (BarCodeAssociate associate : associates) {
+            if (StringUtils.isNotBlank(associate.getBarCode())) {
+                barCodes.add(associate.getBarCode());
+            }
+        }
+        barCodeBloomFilter.add(barCodes);
+        entityManager.unwrap(Session.class).setJdbcBatchSize(BATCH_SIZE);
+        String tenantCode = ContextUtil.getTenantCode();
+        for (int i = 0; i < associates.size(); i++) {
+            BarCodeAssociate associate = associates.get(i);
+            if (StringUtils.isBlank(associate.getTenantCode())) {
+                associate.setTenantCode(tenantCode);
+            }
+            entityManager.persist(associate);
+            if ((i + 1) % BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
 }
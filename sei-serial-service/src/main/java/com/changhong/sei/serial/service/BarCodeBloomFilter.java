@@ -0,0 +1,270 @@
+package com.changhong.sei.serial.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>条码的布隆过滤器，用于快速排除不存在的条码</p>
+ * <p>
+ * 过滤器保存在redis位图中，各节点共用；新条码在写入数据库之前加入过滤器，过滤器判断不存在的条码一定不存在，
+ * 不需要查询数据库。位图之后的一位为就绪标记，与位图在同一个key中，key被删除或淘汰时过滤器同时失效，
+ * 未就绪时所有条码都按可能存在处理，由定时任务从数据库重建；删除的条码无法从过滤器中移除，只会多查一次数据库
+ */
+@Component
+public class BarCodeBloomFilter implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BarCodeBloomFilter.class);
+
+    private static final String BLOOM_KEY = "sei-serial:barcode:bloom";
+
+    private static final String BUILD_LOCK_KEY = "sei-serial:barcode:bloom:lock";
+
+    private static final long BUILD_LOCK_MINUTES = 30L;
+
+    /**
+     * 一次脚本调用处理的条码数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private static final String BUILD_SQL = "select id, bar_code from bar_code_associate where id > ? order by id limit "
+            + BATCH_SIZE * 10;
+
+    /**
+     * ARGV[1]为就绪标记位，ARGV[2]为每个条码的位数，之后依次为每个条码的各个位；未就绪时返回空列表
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CONTAINS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GETBIT', KEYS[1], ARGV[1]) == 0 then return {} end " +
+                    "local k = tonumber(ARGV[2]) " +
+                    "local result = {} " +
+                    "for i = 0, (#ARGV - 2) / k - 1 do " +
+                    "  local present = 1 " +
+                    "  for j = 1, k do " +
+                    "    if redis.call('GETBIT', KEYS[1], ARGV[2 + i * k + j]) == 0 then present = 0 break end " +
+                    "  end " +
+                    "  result[i + 1] = present " +
+                    "end " +
+                    "return result", List.class);
+
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #ARGV do redis.call('SETBIT', KEYS[1], ARGV[i], 1) end return #ARGV", Long.class);
+
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    @Value("${sei.serial.bar-code.bloom.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 位图的位数，约为条码数量的10倍时误判率约1%；修改后需要删除redis中的位图重建
+     */
+    @Value("${sei.serial.bar-code.bloom.bits:67108864}")
+    private long bits;
+
+    /**
+     * 每个条码的位数
+     */
+    @Value("${sei.serial.bar-code.bloom.hashes:7}")
+    private int hashes;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sei-serial-bar-code-bloom");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 过滤条码，只保留可能存在的条码；过滤器未就绪或redis出错时全部保留
+     *
+     * @param barCodes 条码
+     * @return 可能存在的条码
+     */
+    public List<String> mightContain(List<String> barCodes) {
+        if (!enabled || barCodes.isEmpty()) {
+            return barCodes;
+        }
+        List<String> result = new ArrayList<>(barCodes.size());
+        for (int from = 0; from < barCodes.size(); from += BATCH_SIZE) {
+            List<String> chunk = barCodes.subList(from, Math.min(from + BATCH_SIZE, barCodes.size()));
+            String[] args = new String[2 + chunk.size() * hashes];
+            args[0] = String.valueOf(bits);
+            args[1] = String.valueOf(hashes);
+            int index = 2;
+            for (String barCode : chunk) {
+                index = fillOffsets(barCode, args, index);
+            }
+            List<?> present;
+            try {
+                present = stringRedisTemplate.execute(CONTAINS_SCRIPT, Collections.singletonList(BLOOM_KEY), (Object[]) args);
+            } catch (RuntimeException e) {
+                log.warn("查询条码布隆过滤器出错", e);
+                present = null;
+            }
+            if (Objects.isNull(present) || present.isEmpty()) {
+                // 未就绪，全部按可能存在处理
+                result.addAll(chunk);
+                continue;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (((Number) present.get(i)).longValue() != 0L) {
+                    result.add(chunk.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean mightContain(String barCode) {
+        return !mightContain(Collections.singletonList(barCode)).isEmpty();
+    }
+
+    /**
+     * 加入新条码，需要在写入数据库之前调用，否则写入后、加入前的查询会误判为不存在
+     *
+     * @param barCodes 条码
+     */
+    public void add(Collection<String> barCodes) {
+        if (!enabled || barCodes.isEmpty()) {
+            return;
+        }
+        List<String> list = new ArrayList<>(barCodes);
+        for (int from = 0; from < list.size(); from += BATCH_SIZE) {
+            List<String> chunk = list.subList(from, Math.min(from + BATCH_SIZE, list.size()));
+            String[] args = new String[chunk.size() * hashes];
+            int index = 0;
+            for (String barCode : chunk) {
+                index = fillOffsets(barCode, args, index);
+            }
+            stringRedisTemplate.execute(ADD_SCRIPT, Collections.singletonList(BLOOM_KEY), (Object[]) args);
+        }
+    }
+
+    /**
+     * 过滤器未就绪时在后台从数据库重建，多节点部署时用redis锁保证只有一个节点重建
+     */
+    @Scheduled(fixedDelayString = "${sei.serial.bar-code.bloom.check-interval:60000}")
+    public void ensureBuilt() {
+        if (!enabled || building.get() || isReady()) {
+            return;
+        }
+        if (building.compareAndSet(false, true)) {
+            buildExecutor.execute(() -> {
+                try {
+                    build();
+                } catch (Exception e) {
+                    log.error("重建条码布隆过滤器出错", e);
+                } finally {
+                    building.set(false);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void destroy() {
+        buildExecutor.shutdownNow();
+    }
+
+    private boolean isReady() {
+        Boolean ready = stringRedisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.getBit(BLOOM_KEY.getBytes(StandardCharsets.UTF_8), bits));
+        return Boolean.TRUE.equals(ready);
+    }
+
+    /**
+     * 按主键分页读取全部条码加入过滤器，完成后设置就绪标记；重建期间新增的条码由写入方加入
+     */
+    private void build() {
+        String token = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(BUILD_LOCK_KEY, token,
+                BUILD_LOCK_MINUTES, TimeUnit.MINUTES))) {
+            log.debug("其他节点正在重建条码布隆过滤器");
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            long total = 0L;
+            String lastId = "";
+            while (true) {
+                List<String> barCodes = new ArrayList<>();
+                String[] next = new String[1];
+                jdbcTemplate.query(BUILD_SQL, rs -> {
+                    next[0] = rs.getString(1);
+                    String barCode = rs.getString(2);
+                    if (Objects.nonNull(barCode)) {
+                        barCodes.add(barCode);
+                    }
+                }, lastId);
+                if (Objects.isNull(next[0])) {
+                    break;
+                }
+                add(barCodes);
+                total += barCodes.size();
+                lastId = next[0];
+            }
+            stringRedisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.setBit(BLOOM_KEY.getBytes(StandardCharsets.UTF_8), bits, true));
+            log.info("条码布隆过滤器重建完成，共 {} 个条码，耗时 {} ms", total, System.currentTimeMillis() - started);
+        } finally {
+            stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(BUILD_LOCK_KEY), token);
+        }
+    }
+
+    /**
+     * 双重哈希计算条码的各个位，写入args中index开始的位置
+     *
+     * @return 下一个写入位置
+     */
+    private int fillOffsets(String barCode, String[] args, int index) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < barCode.length(); i++) {
+            hash = (hash ^ barCode.charAt(i)) * 0x100000001b3L;
+        }
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9e3779b97f4a7c15L) | 1L;
+        for (int i = 0; i < hashes; i++) {
+            args[index++] = String.valueOf(Math.floorMod(h1 + i * h2, bits));
+        }
+        return index;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,22 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.serial.entity.IsolationRecord;
+import com.changhong.sei.serial.entity.SerialNumberConfig;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>编号配置(sei-serial:config:*)和隔离记录(sei-serial:isolation:*)redis缓存的编解码</p>
+ * <p>
+ * 默认实现为 {@link CompactCacheCodec}，可以声明一个@Primary的实现替换；
+ * 解码时应兼容升级前写入的JSON，无法识别时返回null，按缓存未命中处理
+ */
+public interface CacheCodec {
+
+    byte[] encodeConfig(SerialNumberConfig config);
+
+    SerialNumberConfig decodeConfig(byte[] bytes);
+
+    byte[] encodeRecord(IsolationRecord record);
+
+    IsolationRecord decodeRecord(byte[] bytes);
+}
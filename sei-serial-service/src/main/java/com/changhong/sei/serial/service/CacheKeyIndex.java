@@ -0,0 +1,160 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.serial.sdk.SerialKeyIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>redis缓存key索引</p>
+ * <p>
+ * 缓存key写入时登记到对应的索引set中，清除缓存时按索引分批流水线删除，不再用KEYS扫描整个keyspace；
+ * 升级前写入的key没有登记索引，按游标SCAN兜底删除，每个模式扫描完成后在redis中记录标记，标记有效期内不再扫描，
+ * 可通过 sei.serial.cache.scan-legacy-keys 关闭；
+ * 登记新key时清理索引中已过期的key，见 {@link SerialKeyIndex}
+ */
+@Component
+public class CacheKeyIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheKeyIndex.class);
+
+    /**
+     * 每次DEL命令删除的key数量
+     */
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    /**
+     * 每次SCAN的数量
+     */
+    private static final long SCAN_COUNT = 1000L;
+
+    private static final String LEGACY_SCANNED_KEY_PREFIX = "sei-serial:legacy-scanned:";
+
+    /**
+     * 扫描标记的有效期，覆盖新旧版本混合部署的升级窗口
+     */
+    private static final long LEGACY_SCANNED_DAYS = 30L;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${sei.serial.cache.scan-legacy-keys:true}")
+    private boolean scanLegacyKeys = true;
+
+    /**
+     * 登记缓存key
+     *
+     * @param indexKey 索引key
+     * @param keys     缓存key
+     */
+    public void register(String indexKey, String... keys) {
+        SerialKeyIndex.register(stringRedisTemplate, indexKey, keys);
+    }
+
+    /**
+     * 删除索引中登记的所有缓存key及索引本身，并按模式扫描删除未登记的旧key
+     *
+     * @param indexKey      索引key
+     * @param legacyPattern 未登记的旧key的匹配模式
+     */
+    public void deleteAll(String indexKey, String legacyPattern) {
+        Set<String> keys = stringRedisTemplate.opsForSet().members(indexKey);
+        List<String> toDelete = new ArrayList<>();
+        if (Objects.nonNull(keys)) {
+            toDelete.addAll(keys);
+        }
+        // 最后删除索引，删除中途失败时下次仍可按索引重试
+        toDelete.add(indexKey);
+        delete(toDelete);
+        if (scanLegacyKeys) {
+            scanLegacyKeys(legacyPattern);
+        }
+    }
+
+    /**
+     * 每个模式只扫描一次，扫描完成后才记录标记，扫描中途失败时下次重试
+     */
+    private void scanLegacyKeys(String pattern) {
+        String scannedKey = LEGACY_SCANNED_KEY_PREFIX + pattern;
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(scannedKey))) {
+            return;
+        }
+        if (scanAndDelete(pattern)) {
+            stringRedisTemplate.opsForValue().set(scannedKey, "1", LEGACY_SCANNED_DAYS, TimeUnit.DAYS);
+        }
+    }
+
+    /**
+     * 按游标扫描并删除匹配的key，每次扫描只处理少量key，不会长时间阻塞redis
+     *
+     * @param pattern 匹配模式
+     * @return 扫描出错时返回false
+     */
+    public boolean scanAndDelete(String pattern) {
+        List<String> keys;
+        try {
+            keys = stringRedisTemplate.execute((RedisCallback<List<String>>) connection -> scan(connection, pattern));
+        } catch (Exception e) {
+            log.error("扫描缓存key {} 出错", pattern, e);
+            return false;
+        }
+        if (Objects.nonNull(keys) && !keys.isEmpty()) {
+            log.info("扫描删除未登记索引的缓存 {} 共 {} 个", pattern, keys.size());
+            delete(keys);
+        }
+        return true;
+    }
+
+    /**
+     * 分批流水线删除
+     *
+     * @param keys 缓存key
+     */
+    public void delete(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> list = new ArrayList<>(keys);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int from = 0; from < list.size(); from += DELETE_BATCH_SIZE) {
+                List<String> chunk = list.subList(from, Math.min(from + DELETE_BATCH_SIZE, list.size()));
+                byte[][] rawKeys = new byte[chunk.size()][];
+                for (int i = 0; i < chunk.size(); i++) {
+                    rawKeys[i] = chunk.get(i).getBytes(StandardCharsets.UTF_8);
+                }
+                connection.del(rawKeys);
+            }
+            return null;
+        });
+    }
+
+    private static List<String> scan(RedisConnection connection, String pattern) {
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+        try (Cursor<byte[]> cursor = connection.scan(options)) {
+            while (cursor.hasNext()) {
+                keys.add(new String(cursor.next(), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("关闭扫描游标出错", e);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,216 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.core.util.JsonUtils;
+import com.changhong.sei.serial.entity.IsolationRecord;
+import com.changhong.sei.serial.entity.SerialNumberConfig;
+import com.changhong.sei.serial.entity.enumclass.ConfigType;
+import com.changhong.sei.serial.entity.enumclass.CycleStrategy;
+import com.changhong.sei.serial.entity.enumclass.ReturnStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>紧凑的二进制缓存格式</p>
+ * <p>
+ * 格式：魔数、版本，之后按固定顺序写入字段，可为空的字段前有一个是否为空的标记，枚举按名称写入；
+ * 不写入审计字段和临时字段。首字节不是魔数时按升级前的JSON解析；
+ * 滚动升级期间旧实例无法读取二进制格式，可先设置 sei.serial.cache.codec=json，全部升级后再改为binary
+ */
+@Component
+public class CompactCacheCodec implements CacheCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactCacheCodec.class);
+
+    /**
+     * 不会出现在JSON开头的字节
+     */
+    private static final byte MAGIC = (byte) 0xB5;
+
+    private static final byte CONFIG_VERSION = 1;
+
+    private static final byte RECORD_VERSION = 1;
+
+    private static final String JSON = "json";
+
+    /**
+     * 写入格式，binary 或 json；读取时两种格式都支持
+     */
+    @Value("${sei.serial.cache.codec:binary}")
+    private String codec = "binary";
+
+    @Override
+    public byte[] encodeConfig(SerialNumberConfig config) {
+        if (JSON.equalsIgnoreCase(codec)) {
+            return JsonUtils.toJson(config).getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(CONFIG_VERSION);
+            writeString(out, config.getId());
+            writeString(out, config.getEntityClassName());
+            writeEnum(out, config.getConfigType());
+            writeString(out, config.getName());
+            writeString(out, config.getExpressionConfig());
+            out.writeLong(config.getInitialSerial());
+            writeBoolean(out, config.getGenFlag());
+            writeEnum(out, config.getCycleStrategy());
+            writeEnum(out, config.getReturnStrategy());
+            out.writeBoolean(config.isActivated());
+            writeString(out, config.getTenantCode());
+            writeInteger(out, config.getShardCount());
+            writeBoolean(out, config.getGapless());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public SerialNumberConfig decodeConfig(byte[] bytes) {
+        if (Objects.isNull(bytes) || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return JsonUtils.fromJson(new String(bytes, StandardCharsets.UTF_8), SerialNumberConfig.class);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            byte version = in.readByte();
+            if (version != CONFIG_VERSION) {
+                log.warn("不支持的编号配置缓存版本 {}", version);
+                return null;
+            }
+            SerialNumberConfig config = new SerialNumberConfig();
+            config.setId(readString(in));
+            config.setEntityClassName(readString(in));
+            config.setConfigType(readEnum(in, ConfigType.class));
+            config.setName(readString(in));
+            config.setExpressionConfig(readString(in));
+            config.setInitialSerial(in.readLong());
+            config.setGenFlag(readBoolean(in));
+            config.setCycleStrategy(readEnum(in, CycleStrategy.class));
+            config.setReturnStrategy(readEnum(in, ReturnStrategy.class));
+            config.setActivated(in.readBoolean());
+            config.setTenantCode(readString(in));
+            config.setShardCount(readInteger(in));
+            config.setGapless(readBoolean(in));
+            return config;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("编号配置缓存解析出错", e);
+            return null;
+        }
+    }
+
+    @Override
+    public byte[] encodeRecord(IsolationRecord record) {
+        if (JSON.equalsIgnoreCase(codec)) {
+            return JsonUtils.toJson(record).getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(RECORD_VERSION);
+            writeString(out, record.getId());
+            writeString(out, record.getConfigId());
+            writeString(out, record.getIsolationCode());
+            writeString(out, record.getDateString());
+            writeLong(out, record.getCurrentNumber());
+            writeString(out, record.getTenantCode());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public IsolationRecord decodeRecord(byte[] bytes) {
+        if (Objects.isNull(bytes) || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return JsonUtils.fromJson(new String(bytes, StandardCharsets.UTF_8), IsolationRecord.class);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            byte version = in.readByte();
+            if (version != RECORD_VERSION) {
+                log.warn("不支持的隔离记录缓存版本 {}", version);
+                return null;
+            }
+            IsolationRecord record = new IsolationRecord();
+            record.setId(readString(in));
+            record.setConfigId(readString(in));
+            record.setIsolationCode(readString(in));
+            record.setDateString(readString(in));
+            record.setCurrentNumber(readLong(in));
+            record.setTenantCode(readString(in));
+            return record;
+        } catch (IOException e) {
+            log.warn("隔离记录缓存解析出错", e);
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(Objects.nonNull(value));
+        if (Objects.nonNull(value)) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+        writeString(out, Objects.isNull(value) ? null : value.name());
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInputStream in, Class<E> type) throws IOException {
+        String name = readString(in);
+        return Objects.isNull(name) ? null : Enum.valueOf(type, name);
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+        // 0 为空，1 false，2 true
+        out.writeByte(Objects.isNull(value) ? 0 : value ? 2 : 1);
+    }
+
+    private static Boolean readBoolean(DataInputStream in) throws IOException {
+        byte value = in.readByte();
+        return value == 0 ? null : value == 2;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(Objects.nonNull(value));
+        if (Objects.nonNull(value)) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(Objects.nonNull(value));
+        if (Objects.nonNull(value)) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+}
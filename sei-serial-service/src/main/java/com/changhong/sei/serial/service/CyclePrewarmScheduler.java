@@ -0,0 +1,111 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.serial.entity.SerialNumberConfig;
+import com.changhong.sei.serial.entity.enumclass.CycleStrategy;
+import com.changhong.sei.serial.sdk.SerialUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>下一周期预热</p>
+ * <p>
+ * 跨天、跨月、跨年后第一次给号需要查库创建隔离记录并初始化计数器。
+ * 这里在周期切换前几分钟为按周期循环的配置提前创建下一周期的隔离记录和计数器，
+ * 切换时只是换用新的key；多节点部署时用redis锁保证同一时间只有一个节点预热
+ */
+@Component
+public class CyclePrewarmScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(CyclePrewarmScheduler.class);
+
+    private static final String PREWARM_LOCK_KEY = "sei-serial:prewarm:lock";
+
+    private static final long PREWARM_LOCK_MINUTES = 5L;
+
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    /**
+     * 提前多少分钟预热，小于等于0时不预热
+     */
+    @Value("${sei.serial.prewarm.lead-minutes:5}")
+    private long leadMinutes;
+
+    /**
+     * 已预热的 配置id -> 下一周期日期串，避免提前期内重复预热
+     */
+    private final Map<String, String> prewarmed = new ConcurrentHashMap<>();
+
+    @Autowired
+    private SerialNumberConfigService serialNumberConfigService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Scheduled(fixedDelayString = "${sei.serial.prewarm.check-interval:60000}")
+    public void prewarm() {
+        if (leadMinutes <= 0) {
+            return;
+        }
+        LocalDateTime upcoming = LocalDateTime.now().plusMinutes(leadMinutes);
+        // 提前期内即将切换的循环策略，没有时不查库
+        Set<CycleStrategy> rolling = EnumSet.noneOf(CycleStrategy.class);
+        for (CycleStrategy cycleStrategy : CycleStrategy.values()) {
+            if (!SerialUtils.getDateStringByCycleStrategy(cycleStrategy.name())
+                    .equals(SerialUtils.getDateStringByCycleStrategy(cycleStrategy.name(), upcoming))) {
+                rolling.add(cycleStrategy);
+            }
+        }
+        if (rolling.isEmpty()) {
+            return;
+        }
+        List<SerialNumberConfig> configs = new ArrayList<>();
+        for (SerialNumberConfig config : serialNumberConfigService.findActivatedByCycleStrategies(rolling)) {
+            String nextDateString = SerialUtils.getDateStringByCycleStrategy(config.getCycleStrategy().name(), upcoming);
+            if (!nextDateString.equals(prewarmed.get(config.getId()))) {
+                configs.add(config);
+            }
+        }
+        if (configs.isEmpty()) {
+            return;
+        }
+        String token = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(PREWARM_LOCK_KEY, token,
+                PREWARM_LOCK_MINUTES, TimeUnit.MINUTES))) {
+            log.debug("其他节点正在预热下一周期");
+            return;
+        }
+        try {
+            for (SerialNumberConfig config : configs) {
+                try {
+                    int created = serialNumberConfigService.prewarmNextCycle(config, upcoming);
+                    prewarmed.put(config.getId(), SerialUtils.getDateStringByCycleStrategy(config.getCycleStrategy().name(), upcoming));
+                    log.info("{} 预热下一周期，新建隔离记录 {} 条", config.getEntityClassName(), created);
+                } catch (Exception e) {
+                    log.error("{} 预热下一周期出错", config.getEntityClassName(), e);
+                }
+            }
+        } finally {
+            stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(PREWARM_LOCK_KEY), token);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.serial.entity.IsolationRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>隔离记录批量写入</p>
+ * <p>
+ * 每发一次号都会发送一条mq消息，逐条保存时每个编号对应一次update和一次redis写入。
+ * 这里把一条消息中的记录按 配置id:隔离码:日期串 只保留最大的当前编号，批量写入数据库和缓存；
+ * 在消费线程上同步写入，出错时抛出异常，消息未被确认，由mq重新投递
+ */
+@Component
+public class IsolationRecordBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(IsolationRecordBatchWriter.class);
+
+    @Autowired
+    private IsolationRecordService isolationRecordService;
+
+    /**
+     * 合并后写入隔离记录，已有记录批量更新，新记录逐条保存
+     *
+     * @param records 一条消息中的隔离记录
+     */
+    public void write(Collection<IsolationRecord> records) {
+        Map<String, IsolationRecord> merged = new LinkedHashMap<>();
+        for (IsolationRecord record : records) {
+            String key = record.getConfigId() + ":" + record.getIsolationCode() + ":" + record.getDateString();
+            merged.merge(key, record, IsolationRecordBatchWriter::merge);
+        }
+        List<IsolationRecord> updates = new ArrayList<>();
+        for (IsolationRecord record : merged.values()) {
+            if (StringUtils.isNotBlank(record.getId())) {
+                if (Objects.nonNull(record.getCurrentNumber())) {
+                    updates.add(record);
+                }
+            } else {
+                saveNew(record, updates);
+            }
+        }
+        if (!updates.isEmpty()) {
+            isolationRecordService.batchUpdateCurrentNumber(updates);
+            log.debug("批量更新 {} 条隔离记录", updates.size());
+        }
+    }
+
+    /**
+     * 发送消息时记录可能还未保存，先检查是否已由之前的写入创建
+     */
+    private void saveNew(IsolationRecord record, List<IsolationRecord> updates) {
+        IsolationRecord existing = isolationRecordService.findByConfigIdAndIsolationCodeAndDateString(
+                record.getConfigId(), record.getIsolationCode(), record.getDateString());
+        if (Objects.nonNull(existing)) {
+            if (Objects.nonNull(record.getCurrentNumber())) {
+                existing.setCurrentNumber(record.getCurrentNumber());
+                updates.add(existing);
+            }
+        } else {
+            isolationRecordService.save(record);
+        }
+    }
+
+    private static IsolationRecord merge(IsolationRecord current, IsolationRecord record) {
+        IsolationRecord newer = currentNumber(record) > currentNumber(current) ? record : current;
+        if (StringUtils.isBlank(newer.getId())) {
+            IsolationRecord other = newer == record ? current : record;
+            newer.setId(other.getId());
+        }
+        return newer;
+    }
+
+    private static long currentNumber(IsolationRecord record) {
+        return Objects.isNull(record.getCurrentNumber()) ? Long.MIN_VALUE : record.getCurrentNumber();
+    }
+}
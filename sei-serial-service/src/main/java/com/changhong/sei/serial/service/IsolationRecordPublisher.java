@@ -0,0 +1,192 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.core.mq.MqProducer;
+import com.changhong.sei.core.util.JsonUtils;
+import com.changhong.sei.serial.entity.IsolationRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>隔离记录消息的异步批量发送</p>
+ * <p>
+ * 服务端生成编号后不在请求线程上同步发送mq消息，先放入缓冲：同一 配置id:隔离码:日期串 只保留当前编号最大的一条，
+ * 编号没有前进的记录不会覆盖已有记录；定时把缓冲中的记录按批次合并为一条消息(JSON数组)发送，发送失败的记录放回缓冲，下次重试。
+ * <p>
+ * 缓冲达到上限时，已有记录的更新仍直接合并；新记录最多等待publish-timeout让出空间，超时后由调用线程只发送这一条，
+ * 调用线程之间互不等待。
+ * <p>
+ * 进程异常退出时会丢失缓冲中未发送的记录，最多为一个发送间隔内的更新，正常停止时会先发送。
+ * 给号以redis计数器为准，隔离记录只在计数器key不存在时用于初始化；丢失的更新在下一次发号时被覆盖，
+ * 只有在此之前计数器key也丢失时才会从较小的编号重新开始，同步发送时消息在消费前同样存在这一窗口
+ */
+@Component
+public class IsolationRecordPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(IsolationRecordPublisher.class);
+
+    private final Map<String, IsolationRecord> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MqProducer mqProducer;
+
+    @Autowired
+    private SerialServiceMetrics serialServiceMetrics;
+
+    /**
+     * 缓冲的隔离记录数量上限
+     */
+    @Value("${sei.serial.record.publish-capacity:10000}")
+    private int capacity;
+
+    /**
+     * 一条消息最多包含的隔离记录数量
+     */
+    @Value("${sei.serial.record.publish-batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 缓冲达到上限时新记录等待空间的时长(毫秒)
+     */
+    @Value("${sei.serial.record.publish-timeout:200}")
+    private long timeout;
+
+    /**
+     * 发送后通知等待空间的调用线程
+     */
+    private final Object space = new Object();
+
+    /**
+     * 放入缓冲，当前编号为空的记录不发送
+     *
+     * @param record 隔离记录，放入的是副本，调用方可以继续修改
+     */
+    public void offer(IsolationRecord record) {
+        if (Objects.isNull(record.getCurrentNumber())) {
+            return;
+        }
+        IsolationRecord copy = new IsolationRecord();
+        copy.setId(record.getId());
+        copy.setConfigId(record.getConfigId());
+        copy.setIsolationCode(record.getIsolationCode());
+        copy.setDateString(record.getDateString());
+        copy.setCurrentNumber(record.getCurrentNumber());
+        copy.setTenantCode(record.getTenantCode());
+        copy.setSendTime(System.currentTimeMillis());
+        String key = getKey(copy);
+        // 更新已有记录不占用新的空间
+        if (Objects.nonNull(pending.computeIfPresent(key, (k, current) -> merge(current, copy)))) {
+            return;
+        }
+        if (pending.size() >= capacity && !awaitSpace()) {
+            log.warn("待发送的隔离记录达到上限 {}，由请求线程发送", capacity);
+            send(Collections.singletonList(copy));
+            return;
+        }
+        pending.merge(key, copy, IsolationRecordPublisher::merge);
+    }
+
+    /**
+     * 等待缓冲中有空间
+     *
+     * @return 超时仍没有空间时返回false
+     */
+    private boolean awaitSpace() {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (space) {
+            while (pending.size() >= capacity) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0L) {
+                    return false;
+                }
+                try {
+                    space.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 发送缓冲中的隔离记录
+     */
+    @Scheduled(fixedDelayString = "${sei.serial.record.publish-interval:100}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<IsolationRecord> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        for (String key : pending.keySet()) {
+            IsolationRecord record = pending.remove(key);
+            if (Objects.isNull(record)) {
+                continue;
+            }
+            batch.add(record);
+            if (batch.size() >= batchSize) {
+                send(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private void send(List<IsolationRecord> batch) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            mqProducer.send(JsonUtils.toJson(batch));
+            success = true;
+            if (log.isDebugEnabled()) {
+                log.debug("发送 {} 条隔离记录", batch.size());
+            }
+        } catch (Exception e) {
+            log.error("发送隔离记录消息出错", e);
+            batch.forEach(record -> pending.merge(getKey(record), record, IsolationRecordPublisher::merge));
+        } finally {
+            serialServiceMetrics.recordPublish(System.nanoTime() - start, success);
+            synchronized (space) {
+                space.notifyAll();
+            }
+        }
+    }
+
+    private static String getKey(IsolationRecord record) {
+        return record.getConfigId() + ":" + record.getIsolationCode() + ":" + record.getDateString();
+    }
+
+    /**
+     * 保留当前编号较大的一条，发送时间取较早的，消费延迟从最早未发送的更新算起
+     */
+    private static IsolationRecord merge(IsolationRecord current, IsolationRecord record) {
+        IsolationRecord newer = record.getCurrentNumber() > current.getCurrentNumber() ? record : current;
+        IsolationRecord other = newer == record ? current : record;
+        if (StringUtils.isBlank(newer.getId())) {
+            newer.setId(other.getId());
+        }
+        newer.setSendTime(Math.min(newer.getSendTime(), other.getSendTime()));
+        return newer;
+    }
+}
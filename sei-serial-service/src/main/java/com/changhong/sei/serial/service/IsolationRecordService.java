@@ -4,30 +4,60 @@ package com.changhong.sei.serial.service;
 import com.changhong.sei.core.dao.BaseEntityDao;
 import com.changhong.sei.core.service.BaseEntityService;
 import com.changhong.sei.core.service.bo.OperateResultWithData;
-import com.changhong.sei.core.util.JsonUtils;
 import com.changhong.sei.serial.dao.IsolationRecordDao;
 import com.changhong.sei.serial.entity.IsolationRecord;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 
 import javax.transaction.Transactional;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 
 @Service
 public class IsolationRecordService extends BaseEntityService<IsolationRecord> {
 
     private static final String SEI_SERIAL_ISOLATION_REDIS_KEY = "sei-serial:isolation:";
 
+    private static final String SEI_SERIAL_ISOLATION_INDEX_KEY = "sei-serial:index:isolation:";
+
+    /**
+     * 只增大当前编号，延迟到达的旧消息不会覆盖已写入的更大编号
+     */
+    private static final String UPDATE_CURRENT_NUMBER_SQL = "update isolation_record set current_number = ? " +
+            "where id = ? and (current_number is null or current_number < ?)";
+
+    private static final String SELECT_CURRENT_NUMBER_SQL = "select id, current_number from isolation_record where id in (";
+
+    private static final int BATCH_SIZE = 500;
+
     @Autowired
     private IsolationRecordDao isolationRecordDao;
 
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheKeyIndex cacheKeyIndex;
+
+    @Autowired
+    private CacheCodec cacheCodec;
+
+    @Autowired
+    private LocalConfigCache localConfigCache;
+
 
     @Override
     protected BaseEntityDao<IsolationRecord> getDao() {
@@ -45,6 +75,10 @@ public class IsolationRecordService extends BaseEntityService<IsolationRecord> {
         return isolationRecord;
     }
 
+    public List<IsolationRecord> findByConfigIdAndDateString(String configId, String dateString) {
+        return isolationRecordDao.findByConfigIdAndDateString(configId, dateString);
+    }
+
     @Override
     public OperateResultWithData<IsolationRecord> save(IsolationRecord entity) {
         if (StringUtils.isBlank(entity.getId())) {
@@ -60,27 +94,110 @@ public class IsolationRecordService extends BaseEntityService<IsolationRecord> {
         return OperateResultWithData.operationSuccessWithData(entity);
     }
 
+    /**
+     * 批量更新已有隔离记录的当前编号，并批量刷新实际更新了的记录的缓存
+     *
+     * @param records 隔离记录
+     */
+    @Transactional
+    public void batchUpdateCurrentNumber(List<IsolationRecord> records) {
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_CURRENT_NUMBER_SQL, records, BATCH_SIZE, (ps, record) -> {
+            ps.setLong(1, record.getCurrentNumber());
+            ps.setString(2, record.getId());
+            ps.setLong(3, record.getCurrentNumber());
+        });
+        List<IsolationRecord> updated = new ArrayList<>();
+        List<IsolationRecord> unknown = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                IsolationRecord record = records.get(index++);
+                if (count > 0) {
+                    updated.add(record);
+                } else if (count == Statement.SUCCESS_NO_INFO) {
+                    unknown.add(record);
+                }
+            }
+        }
+        // 批量改写时部分驱动返回SUCCESS_NO_INFO(-2)，无法区分是否被旧消息跳过，以数据库中的当前编号为准
+        updated.addAll(reloadCurrentNumber(unknown));
+        Map<byte[], byte[]> cache = new HashMap<>();
+        Map<String, List<String>> indexes = new HashMap<>();
+        for (IsolationRecord record : updated) {
+            String key = getCacheKey(record.getConfigId(), record.getIsolationCode(), record.getDateString());
+            cache.put(toBytes(key), cacheCodec.encodeRecord(record));
+            localConfigCache.putRecord(key, record);
+            indexes.computeIfAbsent(getIndexKey(record.getConfigId()), k -> new ArrayList<>()).add(key);
+        }
+        if (!cache.isEmpty()) {
+            stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.mSet(cache));
+            indexes.forEach((indexKey, keys) -> cacheKeyIndex.register(indexKey, keys.toArray(new String[0])));
+        }
+    }
+
+    /**
+     * 从数据库读取记录的当前编号，返回仍存在的记录
+     */
+    private List<IsolationRecord> reloadCurrentNumber(List<IsolationRecord> records) {
+        List<IsolationRecord> result = new ArrayList<>(records.size());
+        for (int from = 0; from < records.size(); from += BATCH_SIZE) {
+            List<IsolationRecord> chunk = records.subList(from, Math.min(from + BATCH_SIZE, records.size()));
+            Map<String, Long> current = new HashMap<>();
+            String sql = SELECT_CURRENT_NUMBER_SQL + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sql, rs -> {
+                current.put(rs.getString(1), rs.getLong(2));
+            }, chunk.stream().map(IsolationRecord::getId).toArray());
+            for (IsolationRecord record : chunk) {
+                Long currentNumber = current.get(record.getId());
+                if (Objects.nonNull(currentNumber)) {
+                    record.setCurrentNumber(currentNumber);
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
     private void cacheRecord(IsolationRecord record) {
         String key = getCacheKey(record.getConfigId(), record.getIsolationCode(), record.getDateString());
-        stringRedisTemplate.opsForValue().set(key, JsonUtils.toJson(record));
+        byte[] value = cacheCodec.encodeRecord(record);
+        stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(toBytes(key), value));
+        cacheKeyIndex.register(getIndexKey(record.getConfigId()), key);
+        localConfigCache.putRecord(key, record);
     }
 
     public void clearCacheRecord(String configId) {
-        String valueKey = getCacheKey(configId, "*", "*");
-        Set<String> keys = stringRedisTemplate.keys(valueKey);
-        if (!CollectionUtils.isEmpty(keys)) {
-            stringRedisTemplate.delete(keys);
-        }
+        localConfigCache.invalidateRecords(SEI_SERIAL_ISOLATION_REDIS_KEY + configId + ":");
+        cacheKeyIndex.deleteAll(getIndexKey(configId), getCacheKey(configId, "*", "*"));
     }
 
+    /**
+     * 先取本地缓存，没有时取redis缓存并放入本地缓存
+     */
     private IsolationRecord getRecord(String configId, String isolation, String dateString) {
-        return JsonUtils.fromJson(stringRedisTemplate.opsForValue().get(getCacheKey(configId, isolation, dateString)), IsolationRecord.class);
+        String key = getCacheKey(configId, isolation, dateString);
+        IsolationRecord record = localConfigCache.getRecord(key);
+        if (Objects.isNull(record)) {
+            record = cacheCodec.decodeRecord(stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(toBytes(key))));
+            if (Objects.nonNull(record)) {
+                localConfigCache.putRecord(key, record);
+            }
+        }
+        return record;
+    }
+
+    private static byte[] toBytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
     }
 
     private String getCacheKey(String configId, String isolation, String dateString) {
         return SEI_SERIAL_ISOLATION_REDIS_KEY + configId + ":" + isolation + ":" + dateString;
     }
 
+    private String getIndexKey(String configId) {
+        return SEI_SERIAL_ISOLATION_INDEX_KEY + configId;
+    }
+
     public void deleteByConfigId(String s) {
         clearCacheRecord(s);
         isolationRecordDao.deleteByConfigId(s);
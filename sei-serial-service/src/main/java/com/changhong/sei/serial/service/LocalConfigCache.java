@@ -0,0 +1,142 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.serial.entity.IsolationRecord;
+import com.changhong.sei.serial.entity.SerialNumberConfig;
+import com.changhong.sei.serial.sdk.SerialUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>编号配置和隔离记录的本地(L1)缓存</p>
+ * <p>
+ * 位于redis缓存(L2)之前，命中时只是一次哈希查找，不需要访问redis和反序列化。
+ * 订阅编号配置变更消息(与SDK相同的频道，配置保存、启停、删除后发布)，收到后清除本实例的缓存；
+ * 隔离记录的当前编号会持续变化，缓存时间较短，取出时返回副本，调用方可以修改
+ */
+@Component
+public class LocalConfigCache implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalConfigCache.class);
+
+    @Value("${sei.serial.local-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sei.serial.local-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${sei.serial.local-cache.config-expire-seconds:300}")
+    private long configExpireSeconds;
+
+    @Value("${sei.serial.local-cache.record-expire-seconds:10}")
+    private long recordExpireSeconds;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+    /**
+     * 类路径:配置类型:租户 -> 配置
+     */
+    private Cache<String, SerialNumberConfig> configs;
+
+    /**
+     * 隔离记录的redis缓存key -> 隔离记录
+     */
+    private Cache<String, IsolationRecord> records;
+
+    @Override
+    public void afterPropertiesSet() {
+        configs = Caffeine.newBuilder().maximumSize(maxSize)
+                .expireAfterWrite(configExpireSeconds, TimeUnit.SECONDS).build();
+        records = Caffeine.newBuilder().maximumSize(maxSize)
+                .expireAfterWrite(recordExpireSeconds, TimeUnit.SECONDS).build();
+        if (!enabled) {
+            return;
+        }
+        container.setConnectionFactory(stringRedisTemplate.getRequiredConnectionFactory());
+        container.addMessageListener((message, pattern) ->
+                invalidate(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(SerialUtils.CONFIG_CHANGE_CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        container.destroy();
+    }
+
+    public SerialNumberConfig getConfig(String key) {
+        return enabled ? configs.getIfPresent(key) : null;
+    }
+
+    public void putConfig(String key, SerialNumberConfig config) {
+        if (enabled) {
+            configs.put(key, config);
+        }
+    }
+
+    /**
+     * 隔离记录的副本
+     */
+    public IsolationRecord getRecord(String key) {
+        if (!enabled) {
+            return null;
+        }
+        IsolationRecord record = records.getIfPresent(key);
+        return Objects.isNull(record) ? null : copy(record);
+    }
+
+    public void putRecord(String key, IsolationRecord record) {
+        if (enabled) {
+            records.put(key, copy(record));
+        }
+    }
+
+    /**
+     * 清除以prefix开头的隔离记录
+     */
+    public void invalidateRecords(String prefix) {
+        records.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * 配置变更：清除该类路径的配置；隔离记录按配置id缓存，无法按类路径区分，全部清除
+     *
+     * @param className 类路径，{@link SerialUtils#CONFIG_CHANGE_ALL} 表示全部
+     */
+    public void invalidate(String className) {
+        if (log.isDebugEnabled()) {
+            log.debug("编号配置 {} 已变更，清除本地缓存", className);
+        }
+        if (SerialUtils.CONFIG_CHANGE_ALL.equals(className)) {
+            configs.invalidateAll();
+        } else {
+            String prefix = className + ":";
+            configs.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        records.invalidateAll();
+    }
+
+    private static IsolationRecord copy(IsolationRecord record) {
+        IsolationRecord copy = new IsolationRecord();
+        BeanUtils.copyProperties(record, copy);
+        return copy;
+    }
+}
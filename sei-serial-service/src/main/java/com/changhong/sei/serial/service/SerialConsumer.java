@@ -7,18 +7,44 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 @Component
 public class SerialConsumer extends MqConsumer {
 
     @Autowired
-    private IsolationRecordService service;
+    private IsolationRecordBatchWriter batchWriter;
+
+    @Autowired
+    private SerialServiceMetrics serialServiceMetrics;
 
     @Override
     public void process(String message) {
         if(StringUtils.isBlank(message)){
             return;
         }
-        IsolationRecord entity = JsonUtils.fromJson(message, IsolationRecord.class);
-        service.save(entity);
+        // 批量发送的消息为数组，兼容升级前发送的单条记录
+        IsolationRecord[] entities;
+        if (message.trim().startsWith("[")) {
+            entities = JsonUtils.fromJson(message, IsolationRecord[].class);
+        } else {
+            entities = new IsolationRecord[]{JsonUtils.fromJson(message, IsolationRecord.class)};
+        }
+        if (Objects.isNull(entities)) {
+            return;
+        }
+        List<IsolationRecord> records = new ArrayList<>(entities.length);
+        for (IsolationRecord entity : entities) {
+            if (Objects.nonNull(entity)) {
+                serialServiceMetrics.recordConsumeLag(entity.getSendTime());
+                records.add(entity);
+            }
+        }
+        // 写入完成后才返回，写入出错时异常抛给mq，消息重新投递
+        if (!records.isEmpty()) {
+            batchWriter.write(records);
+        }
     }
 }
@@ -3,20 +3,22 @@ package com.changhong.sei.serial.service;
 import com.changhong.sei.core.context.ContextUtil;
 import com.changhong.sei.core.dao.BaseEntityDao;
 import com.changhong.sei.core.dto.ResultData;
-import com.changhong.sei.core.mq.MqProducer;
 import com.changhong.sei.core.service.BaseEntityService;
 import com.changhong.sei.core.service.bo.OperateResult;
 import com.changhong.sei.core.service.bo.OperateResultWithData;
-import com.changhong.sei.core.util.JsonUtils;
 import com.changhong.sei.serial.dao.SerialNumberConfigDao;
 import com.changhong.sei.serial.entity.BarCodeAssociate;
 import com.changhong.sei.serial.entity.IsolationRecord;
 import com.changhong.sei.serial.entity.SerialNumberConfig;
 import com.changhong.sei.serial.entity.enumclass.ConfigType;
+import com.changhong.sei.serial.entity.enumclass.CycleStrategy;
 import com.changhong.sei.serial.entity.enumclass.ReturnStrategy;
 import com.changhong.sei.serial.exception.SerialException;
+import com.changhong.sei.serial.sdk.SerialCounterScript;
+import com.changhong.sei.serial.sdk.SerialShards;
 import com.changhong.sei.serial.sdk.SerialUtils;
 import com.changhong.sei.serial.sdk.entity.BarCodeDto;
+import com.changhong.sei.serial.sdk.entity.SerialNumberDto;
 import io.swagger.annotations.Api;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -25,9 +27,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
 import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.*;
 
 /**
@@ -43,19 +49,38 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
 
     private static final String SEI_SERIAL_CONFIG_REDIS_KEY = "sei-serial:config:";
 
+    private static final String SEI_SERIAL_CONFIG_INDEX_KEY = "sei-serial:index:config";
+
+    /**
+     * 单次最多申请的编号数量
+     */
+    private static final int MAX_NUMBER_COUNT = 100000;
+
     @Resource
     private StringRedisTemplate stringRedisTemplate;
     @Autowired
     private SerialNumberConfigDao dao;
     @Autowired
-    private MqProducer mqProducer;
+    private IsolationRecordPublisher isolationRecordPublisher;
 
     @Autowired
     private BarCodeAssociateService barCodeAssociateService;
 
+    @Autowired
+    private CacheCodec cacheCodec;
+
+    @Autowired
+    private SerialServiceMetrics serialServiceMetrics;
+
     @Autowired
     private IsolationRecordService isolationRecordService;
 
+    @Autowired
+    private CacheKeyIndex cacheKeyIndex;
+
+    @Autowired
+    private LocalConfigCache localConfigCache;
+
 
     @Override
     protected BaseEntityDao<SerialNumberConfig> getDao() {
@@ -71,6 +96,34 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
      * @return 编号生成器配置
      */
     public IsolationRecord findByClassNameAndConfigType(String className, ConfigType configType, String isolation) {
+        return findByClassNameAndConfigType(className, configType, isolation, 1);
+    }
+
+    /**
+     * 通过类路径获取配置，服务端生成编号时一次预留count个连续编号(号段)
+     *
+     * @param className  类路径标识
+     * @param configType 配置类型
+     * @param isolation  隔离码
+     * @param count      预留数量，返回记录的当前编号为预留编号中的最后一个
+     * @return 隔离记录
+     */
+    public IsolationRecord findByClassNameAndConfigType(String className, ConfigType configType, String isolation, int count) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            IsolationRecord isolationRecord = lookup(className, configType, isolation, count);
+            success = true;
+            return isolationRecord;
+        } finally {
+            serialServiceMetrics.recordConfigLookup(className, configType, System.nanoTime() - start, success);
+        }
+    }
+
+    private IsolationRecord lookup(String className, ConfigType configType, String isolation, int count) {
+        if (count < 1 || count > MAX_NUMBER_COUNT) {
+            throw new SerialException("申请编号数量必须在1到" + MAX_NUMBER_COUNT + "之间");
+        }
         String tenantCode = ContextUtil.getTenantCode();
         if (StringUtils.isBlank(tenantCode)) {
             throw new SerialException("未获取到有效租户，请检查token是否有效");
@@ -88,22 +141,19 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
             log.debug("通过className:{} ,获取到当前配置是 {}", className, entity);
         }
         if (Boolean.TRUE.equals(entity.getGenFlag())) {
-            Long currentNumber = entity.getInitialSerial();
             String currentValueKey = SerialUtils.getValueKey(entity.getEntityClassName(),
                     configType.name(), tenantCode, isolation, dateString);
-            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(currentValueKey))) {
-                currentNumber = stringRedisTemplate.opsForValue().increment(currentValueKey);
-            } else {
-                if (Objects.nonNull(isolationRecord)) {
-                    currentNumber = isolationRecord.getCurrentNumber();
-                    // 无缓存、非首次生成的的情况，先完成缓存，setIfAbsent 防止多线程请求
-                    stringRedisTemplate.opsForValue().setIfAbsent(currentValueKey, currentNumber.toString());
-                }
-                // 当无缓存时(当前隔离码首次请求)就取当前值(初始值)，
-                if (Boolean.FALSE.equals(stringRedisTemplate.opsForValue().setIfAbsent(currentValueKey, currentNumber.toString()))) {
-                    currentNumber = stringRedisTemplate.opsForValue().increment(currentValueKey);
-                }
+            // 无缓存时，以已发放的最大编号初始化，首次生成时以初始值的前一个初始化，初始化和自增在同一脚本中原子完成
+            long issued = Objects.nonNull(isolationRecord) ? isolationRecord.getCurrentNumber() : entity.getInitialSerial() - 1;
+            SerialCounterScript.Increment increment = new SerialCounterScript.Increment(currentValueKey, count, issued,
+                    SerialUtils.getExpireByCycleStrategy(entity.getCycleStrategy().name()), 0L)
+                    .shard(SerialShards.getShardCount(entity.getShardCount()));
+            SerialCounterScript.Result counter = SerialCounterScript.increment(stringRedisTemplate, increment);
+            if (counter.isInitialized()) {
+                cacheKeyIndex.register(SerialUtils.getValueIndexKey(entity.getEntityClassName(), configType.name(), tenantCode),
+                        increment.getKey());
             }
+            Long currentNumber = counter.getValue();
             if (Objects.isNull(isolationRecord)) {
                 isolationRecord = new IsolationRecord();
                 isolationRecord.setIsolationCode(isolation);
@@ -113,19 +163,17 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
             } else {
                 isolationRecord.setCurrentNumber(currentNumber);
             }
-            String json = JsonUtils.toJson(isolationRecord);
-            mqProducer.send(json);
+            isolationRecordPublisher.offer(isolationRecord);
+            serialServiceMetrics.recordIssued(className, tenantCode, isolation, count);
             log.info("{} 获取到当前的序列号是 {}", className, currentNumber);
-        } else {
-            if (Objects.isNull(isolationRecord)) {
-                isolationRecord = new IsolationRecord();
-                isolationRecord.setIsolationCode(isolation);
-                isolationRecord.setCurrentNumber(entity.getInitialSerial());
-                isolationRecord.setDateString(dateString);
-                isolationRecord.setConfigId(entity.getId());
-            }
-            String json = JsonUtils.toJson(isolationRecord);
-            mqProducer.send(json);
+        } else if (Objects.isNull(isolationRecord)) {
+            // 编号由SDK生成，服务端的当前编号不会前进，只在记录不存在时发送消息创建一次，保存后由缓存命中
+            isolationRecord = new IsolationRecord();
+            isolationRecord.setIsolationCode(isolation);
+            isolationRecord.setCurrentNumber(entity.getInitialSerial());
+            isolationRecord.setDateString(dateString);
+            isolationRecord.setConfigId(entity.getId());
+            isolationRecordPublisher.offer(isolationRecord);
         }
         isolationRecord.setSerialNumberConfig(entity);
         return isolationRecord;
@@ -139,15 +187,75 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
      */
     @Transactional
     public OperateResultWithData<SerialNumberConfig> save(SerialNumberConfig serialNumberConfig) {
+        checkShardCount(serialNumberConfig);
+        if (Boolean.TRUE.equals(serialNumberConfig.getGapless())) {
+            if (Boolean.TRUE.equals(serialNumberConfig.getGenFlag())) {
+                throw new SerialException("连续编号不支持在服务端生成编号");
+            }
+            if (SerialShards.getShardCount(serialNumberConfig.getShardCount()) > 1) {
+                throw new SerialException("连续编号不支持分片");
+            }
+        }
         OperateResultWithData<SerialNumberConfig> result;
         result = super.save(serialNumberConfig);
         String currentKey = SEI_SERIAL_CONFIG_REDIS_KEY + serialNumberConfig.getEntityClassName() + ":" + serialNumberConfig.getConfigType().name() + ":" + serialNumberConfig.getTenantCode();
         cacheConfig(currentKey, serialNumberConfig);
+        publishConfigChange(serialNumberConfig.getEntityClassName());
         return result;
     }
 
+    /**
+     * 校验分片数量，按最大编号循环时每个分片至少要有一个编号
+     */
+    private void checkShardCount(SerialNumberConfig serialNumberConfig) {
+        Integer shardCount = serialNumberConfig.getShardCount();
+        if (Objects.isNull(shardCount)) {
+            return;
+        }
+        if (shardCount < 1 || shardCount > SerialShards.MAX_SHARD_COUNT) {
+            throw new SerialException("分片数量必须在1到" + SerialShards.MAX_SHARD_COUNT + "之间");
+        }
+        if (serialNumberConfig.getCycleStrategy() == CycleStrategy.MAX_CYCLE) {
+            long max = SerialCounterScript.getMaxSerial(SerialUtils.getSerialItem(serialNumberConfig.getExpressionConfig()));
+            if (max > 0 && shardCount > max) {
+                throw new SerialException("分片数量不能超过序号的最大值" + max);
+            }
+        }
+    }
+
+    /**
+     * 通知SDK及其他实例编号配置已变更
+     *
+     * @param className 类路径，{@link SerialUtils#CONFIG_CHANGE_ALL} 表示全部
+     */
+    private void publishConfigChange(String className) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 事务提交后再通知，避免其他实例读取到未提交的配置
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    sendConfigChange(className);
+                }
+            });
+        } else {
+            sendConfigChange(className);
+        }
+    }
+
+    private void sendConfigChange(String className) {
+        // 本实例立即清除，其他实例收到消息后清除
+        localConfigCache.invalidate(className);
+        try {
+            stringRedisTemplate.convertAndSend(SerialUtils.CONFIG_CHANGE_CHANNEL, className);
+        } catch (Exception e) {
+            log.error("发布编号配置变更通知出错", e);
+        }
+    }
+
     private void cacheConfig(String key, SerialNumberConfig entity) {
-        stringRedisTemplate.opsForValue().set(key, JsonUtils.toJson(entity));
+        byte[] value = cacheCodec.encodeConfig(entity);
+        stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(key.getBytes(StandardCharsets.UTF_8), value));
+        cacheKeyIndex.register(SEI_SERIAL_CONFIG_INDEX_KEY, key);
     }
 
     /**
@@ -167,11 +275,8 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
      */
     public void clearConfigCache() {
         // 清除带有隔离码的编号生成器配置缓存
-        String pattern = SEI_SERIAL_CONFIG_REDIS_KEY + "*";
-        Set<String> keys = stringRedisTemplate.keys(pattern);
-        if (!CollectionUtils.isEmpty(keys)) {
-            stringRedisTemplate.delete(keys);
-        }
+        cacheKeyIndex.deleteAll(SEI_SERIAL_CONFIG_INDEX_KEY, SEI_SERIAL_CONFIG_REDIS_KEY + "*");
+        publishConfigChange(SerialUtils.CONFIG_CHANGE_ALL);
     }
 
     /**
@@ -185,10 +290,9 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
                     + ":" + numberConfig.getConfigType().name() + ":" + numberConfig.getTenantCode());
             String valueKey = SerialUtils.getValueKey(numberConfig.getEntityClassName(),
                     numberConfig.getConfigType().name(), numberConfig.getTenantCode(), "*", "*");
-            Set<String> keys = stringRedisTemplate.keys(valueKey);
-            if (!CollectionUtils.isEmpty(keys)) {
-                stringRedisTemplate.delete(keys);
-            }
+            cacheKeyIndex.deleteAll(SerialUtils.getValueIndexKey(numberConfig.getEntityClassName(),
+                    numberConfig.getConfigType().name(), numberConfig.getTenantCode()), valueKey);
+            publishConfigChange(numberConfig.getEntityClassName());
         }
     }
 
@@ -211,6 +315,32 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
                 });
     }
 
+    /**
+     * 批量生成编号，一次预留count个连续编号并解析
+     *
+     * @param serialNumberDto 批量获取编号参数
+     * @return 编号列表
+     */
+    public List<String> genNumbers(SerialNumberDto serialNumberDto) {
+        String isolation = serialNumberDto.getIsolation();
+        if (StringUtils.isBlank(isolation)) {
+            isolation = SerialUtils.DEFAULT_ISOLATION;
+        }
+        int count = serialNumberDto.getCount();
+        IsolationRecord isolationRecord = this.findByClassNameAndConfigType(serialNumberDto.getClassPath(), ConfigType.CODE_TYPE, isolation, count);
+        SerialNumberConfig config = isolationRecord.getSerialNumberConfig();
+        if (!Boolean.TRUE.equals(config.getGenFlag())) {
+            throw new SerialException("当前配置不在服务端生成编号，请通过SDK获取");
+        }
+        long last = isolationRecord.getCurrentNumber();
+        int shards = SerialShards.getShardCount(config.getShardCount());
+        List<String> numbers = new ArrayList<>(count);
+        for (long number = SerialShards.first(last, count, shards); number <= last; number += shards) {
+            numbers.add(SerialUtils.parserExpression(config.getExpressionConfig(), number, serialNumberDto.getExpressionParam()));
+        }
+        return numbers;
+    }
+
     public String genNumberAndSaveAssociate(BarCodeDto barCodeDto) {
         String tenantCode = ContextUtil.getTenantCode();
         SerialNumberConfig config = getConfig(barCodeDto.getClassPath(), ConfigType.BAR_TYPE, tenantCode);
@@ -247,9 +377,141 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
         return null;
     }
 
+    /**
+     * 批量生成条码并批量保存关联关系，编号在一次请求中连续预留
+     *
+     * @param barCodeDto 条码参数，referenceIds与返回的条码一一对应
+     * @return 条码列表
+     */
+    @Transactional
+    public List<String> genNumbersAndSaveAssociates(BarCodeDto barCodeDto) {
+        List<String> referenceIds = barCodeDto.getReferenceIds();
+        if (CollectionUtils.isEmpty(referenceIds)) {
+            return Collections.emptyList();
+        }
+        String isolation = StringUtils.isBlank(barCodeDto.getIsolation()) ? SerialUtils.DEFAULT_ISOLATION : barCodeDto.getIsolation();
+        String tenantCode = ContextUtil.getTenantCode();
+        SerialNumberConfig config = getConfig(barCodeDto.getClassPath(), ConfigType.BAR_TYPE, tenantCode);
+        if (Objects.isNull(config)) {
+            throw new SerialException("未获取到配置，请检查");
+        }
+        if (!Boolean.TRUE.equals(config.getGenFlag())) {
+            throw new SerialException("当前条码配置不在服务端生成编号");
+        }
+
+        String[] barCodes = new String[referenceIds.size()];
+        int count = referenceIds.size();
+        // 重复的返回策略，已有条码的直接返回
+        if (ReturnStrategy.REPEAT.equals(config.getReturnStrategy())) {
+            Map<String, String> existBarCodes = barCodeAssociateService.findLatestBarCodes(referenceIds);
+            for (int i = 0; i < barCodes.length; i++) {
+                barCodes[i] = existBarCodes.get(referenceIds.get(i));
+                if (Objects.nonNull(barCodes[i])) {
+                    count--;
+                }
+            }
+        }
+        if (count == 0) {
+            return Arrays.asList(barCodes);
+        }
+
+        // 一次预留所有新号
+        IsolationRecord isolationRecord = this.findByClassNameAndConfigType(barCodeDto.getClassPath(), ConfigType.BAR_TYPE, isolation, count);
+        int shards = SerialShards.getShardCount(config.getShardCount());
+        long number = SerialShards.first(isolationRecord.getCurrentNumber(), count, shards);
+        List<BarCodeAssociate> associates = new ArrayList<>(count);
+        for (int i = 0; i < barCodes.length; i++) {
+            if (Objects.nonNull(barCodes[i])) {
+                continue;
+            }
+            barCodes[i] = SerialUtils.parserExpression(config.getExpressionConfig(), number, barCodeDto.getExpressionParam());
+            number += shards;
+            if (StringUtils.isNotBlank(referenceIds.get(i))) {
+                BarCodeAssociate barCodeAssociate = new BarCodeAssociate();
+                barCodeAssociate.setBarCode(barCodes[i]);
+                barCodeAssociate.setConfigId(config.getId());
+                barCodeAssociate.setReferenceId(referenceIds.get(i));
+                barCodeAssociate.setIsolationCode(isolation);
+                associates.add(barCodeAssociate);
+            }
+        }
+        barCodeAssociateService.batchSave(associates);
+        log.info("{} 批量生成条码 {} 个", barCodeDto.getClassPath(), count);
+        return Arrays.asList(barCodes);
+    }
+
+    /**
+     * 查询启用的、按指定策略循环的配置
+     */
+    public List<SerialNumberConfig> findActivatedByCycleStrategies(Collection<CycleStrategy> cycleStrategies) {
+        return dao.findByActivatedTrueAndCycleStrategyIn(cycleStrategies);
+    }
+
+    /**
+     * 提前创建下一周期的隔离记录并初始化计数器，周期切换时不再需要查库初始化
+     * <p>
+     * 只处理当前周期内用过的隔离码；不在服务端生成编号的配置只创建隔离记录，计数器由SDK按业务表校准
+     *
+     * @param entity   编号配置
+     * @param upcoming 下一周期内的时间
+     * @return 新建的隔离记录数量
+     */
+    public int prewarmNextCycle(SerialNumberConfig entity, LocalDateTime upcoming) {
+        String cycleStrategy = entity.getCycleStrategy().name();
+        String dateString = SerialUtils.getDateStringByCycleStrategy(cycleStrategy);
+        String nextDateString = SerialUtils.getDateStringByCycleStrategy(cycleStrategy, upcoming);
+        if (dateString.equals(nextDateString)) {
+            return 0;
+        }
+        int created = 0;
+        for (IsolationRecord current : isolationRecordService.findByConfigIdAndDateString(entity.getId(), dateString)) {
+            String isolation = current.getIsolationCode();
+            IsolationRecord next = isolationRecordService
+                    .findByConfigIdAndIsolationCodeAndDateString(entity.getId(), isolation, nextDateString);
+            if (Objects.isNull(next)) {
+                next = new IsolationRecord();
+                next.setConfigId(entity.getId());
+                next.setIsolationCode(isolation);
+                next.setDateString(nextDateString);
+                next.setTenantCode(entity.getTenantCode());
+                // 服务端生成编号时记录已发放的最后一个编号，否则与首次获取时创建的记录一致
+                next.setCurrentNumber(Boolean.TRUE.equals(entity.getGenFlag()) ? entity.getInitialSerial() - 1 : entity.getInitialSerial());
+                OperateResultWithData<IsolationRecord> result = isolationRecordService.save(next);
+                if (!Boolean.TRUE.equals(result.getSuccess())) {
+                    log.error("预创建隔离记录 {} 失败：{}", next, result.getMessage());
+                    continue;
+                }
+                next = result.getData();
+                created++;
+            }
+            if (Boolean.TRUE.equals(entity.getGenFlag())) {
+                String valueKey = SerialUtils.getValueKey(entity.getEntityClassName(), entity.getConfigType().name(),
+                        entity.getTenantCode(), isolation, nextDateString);
+                SerialCounterScript.Increment increment = new SerialCounterScript.Increment(valueKey, 0,
+                        next.getCurrentNumber(), SerialUtils.getExpireByCycleStrategy(cycleStrategy, upcoming), 0L);
+                // 分片时每个分片key都要初始化
+                int shards = SerialShards.getShardCount(entity.getShardCount());
+                for (int shard = 0; shard < shards; shard++) {
+                    SerialCounterScript.Increment shardIncrement = increment.shard(shard, shards);
+                    if (SerialCounterScript.increment(stringRedisTemplate, shardIncrement).isInitialized()) {
+                        cacheKeyIndex.register(SerialUtils.getValueIndexKey(entity.getEntityClassName(),
+                                entity.getConfigType().name(), entity.getTenantCode()), shardIncrement.getKey());
+                    }
+                }
+            }
+        }
+        return created;
+    }
+
     private SerialNumberConfig getConfig(String className, ConfigType configType, String tenantCode) {
-        String currentKey = SEI_SERIAL_CONFIG_REDIS_KEY + className + ":" + configType.name() + ":" + tenantCode;
-        SerialNumberConfig entity = JsonUtils.fromJson(stringRedisTemplate.opsForValue().get(currentKey), SerialNumberConfig.class);
+        String localKey = className + ":" + configType.name() + ":" + tenantCode;
+        SerialNumberConfig entity = localConfigCache.getConfig(localKey);
+        if (Objects.nonNull(entity)) {
+            return entity;
+        }
+        String currentKey = SEI_SERIAL_CONFIG_REDIS_KEY + localKey;
+        entity = cacheCodec.decodeConfig(stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.get(currentKey.getBytes(StandardCharsets.UTF_8))));
         if (Objects.isNull(entity)) {
             entity = dao.findByEntityClassNameAndConfigTypeAndTenantCode(className, configType, tenantCode);
             if (Objects.nonNull(entity)) {
@@ -258,6 +520,7 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
                 return null;
             }
         }
+        localConfigCache.putConfig(localKey, entity);
         return entity;
     }
 
@@ -279,7 +542,7 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
         String dateString = SerialUtils.getDateStringByCycleStrategy(entity.getCycleStrategy().name());
         IsolationRecord isolationRecord = isolationRecordService
                 .findByConfigIdAndIsolationCodeAndDateString(entity.getId(), isolation, dateString);
-        if(Objects.isNull(isolationRecord)){
+        if(Objects.isNull(isolationRecord) || StringUtils.isBlank(isolationRecord.getId())){
             return ResultData.fail("当前隔离码下没有给号数据,只需在页面上修改当前配置下的当前好即可");
         }
         if (log.isDebugEnabled()) {
@@ -309,7 +572,7 @@ public class SerialNumberConfigService extends BaseEntityService<SerialNumberCon
         String dateString = SerialUtils.getDateStringByCycleStrategy(entity.getCycleStrategy().name());
         IsolationRecord isolationRecord = isolationRecordService
                 .findByConfigIdAndIsolationCodeAndDateString(entity.getId(), isolation, dateString);
-        if(Objects.isNull(isolationRecord)){
+        if(Objects.isNull(isolationRecord) || StringUtils.isBlank(isolationRecord.getId())){
             return ResultData.fail("当前隔离码下没有给号数据,只需在页面上修改当前配置下的当前好即可");
         }
         if (log.isDebugEnabled()) {
@@ -0,0 +1,156 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.serial.entity.enumclass.ConfigType;
+import com.changhong.sei.serial.sdk.SerialMetricTags;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <strong>实现功能:</strong>
+ * <p>给号服务的监控指标，通过actuator的metrics端点查看</p>
+ * <ul>
+ *     <li>sei.serial.service.config.lookup：获取配置(含服务端生成编号)的耗时，标签 config、type、outcome</li>
+ *     <li>sei.serial.service.issued：服务端生成的编号数量，标签 config、tenant、isolation</li>
+ *     <li>sei.serial.mq.publish：发送隔离记录消息的耗时，标签 outcome</li>
+ *     <li>sei.serial.mq.lag：隔离记录消息从发送到消费的延迟</li>
+ * </ul>
+ * 类路径、租户、隔离码标签按 {@link SerialMetricTags} 限制数量；指标在首次使用时注册后缓存，没有MeterRegistry时不记录
+ */
+@Component
+public class SerialServiceMetrics implements InitializingBean {
+
+    private static final String TAG_CONFIG = "config";
+
+    private static final String TAG_OUTCOME = "outcome";
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${sei.serial.metrics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sei.serial.metrics.max-tag-values:100}")
+    private int maxTagValues;
+
+    private SerialMetricTags configs;
+
+    private SerialMetricTags tenants;
+
+    private SerialMetricTags isolations;
+
+    private Timer lagTimer;
+
+    private Timer publishSuccessTimer;
+
+    private Timer publishFailureTimer;
+
+    /**
+     * 类路径:配置类型 -> 耗时
+     */
+    private final Map<String, Timer> lookupSuccessTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> lookupFailureTimers = new ConcurrentHashMap<>();
+
+    /**
+     * 类路径 -> 租户 -> 隔离码 -> 计数
+     */
+    private final Map<String, Map<String, Map<String, Counter>>> issuedCounters = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            meterRegistry = null;
+        }
+        configs = new SerialMetricTags(maxTagValues);
+        tenants = new SerialMetricTags(maxTagValues);
+        isolations = new SerialMetricTags(maxTagValues);
+        if (Objects.nonNull(meterRegistry)) {
+            lagTimer = Timer.builder("sei.serial.mq.lag")
+                    .description("隔离记录消息从发送到消费的延迟")
+                    .register(meterRegistry);
+            publishSuccessTimer = publishTimer("success");
+            publishFailureTimer = publishTimer("failure");
+        }
+    }
+
+    private Timer publishTimer(String outcome) {
+        return Timer.builder("sei.serial.mq.publish")
+                .description("发送隔离记录消息的耗时")
+                .tag(TAG_OUTCOME, outcome)
+                .register(meterRegistry);
+    }
+
+    public void recordConfigLookup(String className, ConfigType configType, long nanos, boolean success) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        String config = configs.get(className);
+        String type = Objects.isNull(configType) ? SerialMetricTags.NONE : configType.name();
+        Map<String, Timer> timers = success ? lookupSuccessTimers : lookupFailureTimers;
+        String timerKey = config + ":" + type;
+        Timer timer = timers.get(timerKey);
+        if (Objects.isNull(timer)) {
+            timer = timers.computeIfAbsent(timerKey, key -> Timer.builder("sei.serial.service.config.lookup")
+                    .description("获取编号配置的耗时")
+                    .tag(TAG_CONFIG, config)
+                    .tag("type", type)
+                    .tag(TAG_OUTCOME, success ? "success" : "failure")
+                    .register(meterRegistry));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordIssued(String className, String tenantCode, String isolation, int count) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        String config = configs.get(className);
+        String tenant = tenants.get(tenantCode);
+        String isolationTag = isolations.get(isolation);
+        Map<String, Map<String, Counter>> byTenant = issuedCounters.get(config);
+        if (Objects.isNull(byTenant)) {
+            byTenant = issuedCounters.computeIfAbsent(config, key -> new ConcurrentHashMap<>());
+        }
+        Map<String, Counter> byIsolation = byTenant.get(tenant);
+        if (Objects.isNull(byIsolation)) {
+            byIsolation = byTenant.computeIfAbsent(tenant, key -> new ConcurrentHashMap<>());
+        }
+        Counter counter = byIsolation.get(isolationTag);
+        if (Objects.isNull(counter)) {
+            counter = byIsolation.computeIfAbsent(isolationTag, key -> Counter.builder("sei.serial.service.issued")
+                    .description("服务端生成的编号数量")
+                    .tag(TAG_CONFIG, config)
+                    .tag("tenant", tenant)
+                    .tag("isolation", key)
+                    .register(meterRegistry));
+        }
+        counter.increment(count);
+    }
+
+    public void recordPublish(long nanos, boolean success) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        (success ? publishSuccessTimer : publishFailureTimer).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param sendTime 消息的发送时间(毫秒)，升级前发送的消息没有发送时间
+     */
+    public void recordConsumeLag(Long sendTime) {
+        if (Objects.isNull(lagTimer) || Objects.isNull(sendTime)) {
+            return;
+        }
+        lagTimer.record(Math.max(0L, System.currentTimeMillis() - sendTime), TimeUnit.MILLISECONDS);
+    }
+}
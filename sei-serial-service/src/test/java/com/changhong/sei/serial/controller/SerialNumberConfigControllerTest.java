@@ -35,7 +35,7 @@ public class SerialNumberConfigControllerTest extends BaseUnitTest {
 
     @Test
     public void findByClassName() {
-        IsolationRecord result = serialNumberConfigController.findByClassName("com.changhong.sei.configcenter.entity.TestEntity", null);
+        IsolationRecord result = serialNumberConfigController.findByClassName("com.changhong.sei.configcenter.entity.TestEntity", null, 1);
         System.out.println(result);
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.serial.dao.BarCodeAssociateDao;
+import com.changhong.sei.serial.entity.BarCodeAssociate;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BarCodeAssociateServiceTest {
+
+    private BarCodeAssociateService service;
+
+    private BarCodeAssociateDao dao;
+
+    private BarCodeBloomFilter bloomFilter;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        dao = mock(BarCodeAssociateDao.class);
+        bloomFilter = mock(BarCodeBloomFilter.class);
+        // 默认过滤器未就绪，全部按可能存在处理
+        when(bloomFilter.mightContain(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(bloomFilter.mightContain(anyString())).thenReturn(true);
+        // 数据库中只有以 code- 开头的条码，返回顺序与请求顺序无关
+        when(dao.findByTenantCodeAndBarCodeIn(nullable(String.class), anyCollection())).thenAnswer(invocation -> {
+            List<BarCodeAssociate> result = ((Collection<String>) invocation.getArgument(1)).stream()
+                    .filter(barCode -> barCode.startsWith("code-"))
+                    .map(BarCodeAssociateServiceTest::newAssociate)
+                    .collect(Collectors.toList());
+            Collections.reverse(result);
+            return result;
+        });
+
+        service = new BarCodeAssociateService();
+        ReflectionTestUtils.setField(service, "barCodeAssociateDao", dao);
+        ReflectionTestUtils.setField(service, "barCodeBloomFilter", bloomFilter);
+        ReflectionTestUtils.setField(service, "cacheSize", 1000L);
+        ReflectionTestUtils.setField(service, "cacheExpireSeconds", 60L);
+        service.afterPropertiesSet();
+    }
+
+    private static BarCodeAssociate newAssociate(String barCode) {
+        BarCodeAssociate associate = new BarCodeAssociate();
+        associate.setBarCode(barCode);
+        associate.setReferenceId("ref-" + barCode);
+        return associate;
+    }
+
+    private static List<String> barCodes(List<BarCodeAssociate> associates) {
+        return associates.stream().map(BarCodeAssociate::getBarCode).collect(Collectors.toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void findByBarCodesKeepsOrderAndDeduplicates() {
+        List<BarCodeAssociate> result = service.findByBarCodes(
+                Arrays.asList("code-3", "code-1", "code-3", "missing", "", null, "code-2"));
+        assertEquals(Arrays.asList("code-3", "code-1", "code-2"), barCodes(result));
+
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(dao, times(1)).findByTenantCodeAndBarCodeIn(nullable(String.class), captor.capture());
+        assertEquals(Arrays.asList("code-3", "code-1", "missing", "code-2"), new ArrayList<>(captor.getValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void findByBarCodesQueriesInChunks() {
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            codes.add("code-" + i);
+        }
+        List<BarCodeAssociate> result = service.findByBarCodes(codes);
+        assertEquals(codes, barCodes(result));
+
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(dao, times(3)).findByTenantCodeAndBarCodeIn(nullable(String.class), captor.capture());
+        assertEquals(Arrays.asList(500, 500, 200),
+                captor.getAllValues().stream().map(Collection::size).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void findByBarCodesSkipsCodesFilteredOut() {
+        when(bloomFilter.mightContain(anyList())).thenReturn(Collections.singletonList("code-1"));
+        List<BarCodeAssociate> result = service.findByBarCodes(Arrays.asList("code-1", "absent-1", "absent-2"));
+        assertEquals(Collections.singletonList("code-1"), barCodes(result));
+        verify(dao).findByTenantCodeAndBarCodeIn(nullable(String.class), eq(Collections.singletonList("code-1")));
+    }
+
+    @Test
+    public void findByBarCodesWithoutCandidates() {
+        when(bloomFilter.mightContain(anyList())).thenReturn(Collections.emptyList());
+        assertTrue(service.findByBarCodes(Arrays.asList("absent-1", "absent-2")).isEmpty());
+        assertTrue(service.findByBarCodes(Collections.emptyList()).isEmpty());
+        verify(dao, never()).findByTenantCodeAndBarCodeIn(nullable(String.class), anyCollection());
+    }
+
+    @Test
+    public void cachedCodesAreNotQueriedAgain() {
+        service.findByBarCodes(Arrays.asList("code-1", "code-2"));
+        reset(dao);
+        List<BarCodeAssociate> result = service.findByBarCodes(Arrays.asList("code-2", "code-1"));
+        assertEquals(Arrays.asList("code-2", "code-1"), barCodes(result));
+        assertEquals("code-1", service.findByBarCode("code-1").getBarCode());
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    public void findByBarCode() {
+        when(dao.findFirstByTenantCodeAndBarCode(nullable(String.class), eq("code-1"))).thenReturn(newAssociate("code-1"));
+        assertEquals("ref-code-1", service.findByBarCode("code-1").getReferenceId());
+        assertNull(service.findByBarCode(" "));
+
+        when(bloomFilter.mightContain("absent")).thenReturn(false);
+        assertNull(service.findByBarCode("absent"));
+        verify(dao, never()).findFirstByTenantCodeAndBarCode(nullable(String.class), eq("absent"));
+    }
+}
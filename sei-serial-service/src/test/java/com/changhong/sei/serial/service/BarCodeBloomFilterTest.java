@@ -0,0 +1,78 @@
+package com.changhong.sei.serial.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BarCodeBloomFilterTest {
+
+    private BarCodeBloomFilter bloomFilter;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final List<String> barCodes = Arrays.asList("code-1", "code-2", "code-3");
+
+    @Before
+    public void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        bloomFilter = new BarCodeBloomFilter();
+        ReflectionTestUtils.setField(bloomFilter, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(bloomFilter, "enabled", true);
+        ReflectionTestUtils.setField(bloomFilter, "bits", 1024L);
+        ReflectionTestUtils.setField(bloomFilter, "hashes", 3);
+    }
+
+    private void whenContains(Object result) {
+        doReturn(result).when(stringRedisTemplate).execute(any(RedisScript.class), anyList(), (Object[]) any());
+    }
+
+    @Test
+    public void notReadyKeepsAll() {
+        // 未就绪时脚本返回空列表
+        whenContains(Collections.emptyList());
+        assertEquals(barCodes, bloomFilter.mightContain(barCodes));
+        assertTrue(bloomFilter.mightContain("code-1"));
+    }
+
+    @Test
+    public void redisErrorKeepsAll() {
+        doThrow(new IllegalStateException("redis不可用")).when(stringRedisTemplate)
+                .execute(any(RedisScript.class), anyList(), (Object[]) any());
+        assertEquals(barCodes, bloomFilter.mightContain(barCodes));
+    }
+
+    @Test
+    public void disabledKeepsAll() {
+        ReflectionTestUtils.setField(bloomFilter, "enabled", false);
+        assertEquals(barCodes, bloomFilter.mightContain(barCodes));
+        verifyNoInteractions(stringRedisTemplate);
+    }
+
+    @Test
+    public void readyFiltersAbsent() {
+        whenContains(Arrays.asList(1L, 0L, 1L));
+        assertEquals(Arrays.asList("code-1", "code-3"), bloomFilter.mightContain(barCodes));
+    }
+
+    @Test
+    public void largeInputIsSplitIntoScriptCalls() {
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            many.add("code-" + i);
+        }
+        whenContains(Collections.emptyList());
+        assertEquals(many, bloomFilter.mightContain(many));
+        verify(stringRedisTemplate, times(3)).execute(any(RedisScript.class), anyList(), (Object[]) any());
+    }
+}
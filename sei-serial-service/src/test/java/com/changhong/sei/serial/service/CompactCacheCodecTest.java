@@ -0,0 +1,156 @@
+package com.changhong.sei.serial.service;
+
+import com.changhong.sei.serial.entity.IsolationRecord;
+import com.changhong.sei.serial.entity.SerialNumberConfig;
+import com.changhong.sei.serial.entity.enumclass.ConfigType;
+import com.changhong.sei.serial.entity.enumclass.CycleStrategy;
+import com.changhong.sei.serial.entity.enumclass.ReturnStrategy;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CompactCacheCodecTest {
+
+    private final CompactCacheCodec codec = new CompactCacheCodec();
+
+    private static SerialNumberConfig newConfig() {
+        SerialNumberConfig config = new SerialNumberConfig();
+        config.setId("config-1");
+        config.setEntityClassName("com.changhong.sei.test.entity.Order");
+        config.setConfigType(ConfigType.BAR_TYPE);
+        config.setName("订单编号");
+        config.setExpressionConfig("PO${yyyyMMdd}#{000000}");
+        config.setInitialSerial(100L);
+        config.setGenFlag(Boolean.TRUE);
+        config.setCycleStrategy(CycleStrategy.DAY_CYCLE);
+        config.setReturnStrategy(ReturnStrategy.NEW);
+        config.setActivated(false);
+        config.setTenantCode("10044");
+        config.setShardCount(8);
+        config.setGapless(Boolean.TRUE);
+        return config;
+    }
+
+    private static IsolationRecord newRecord() {
+        IsolationRecord record = new IsolationRecord();
+        record.setId("record-1");
+        record.setConfigId("config-1");
+        record.setIsolationCode("A01");
+        record.setDateString("20261017");
+        record.setCurrentNumber(12345L);
+        record.setTenantCode("10044");
+        return record;
+    }
+
+    private static void assertConfigEquals(SerialNumberConfig expected, SerialNumberConfig actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getEntityClassName(), actual.getEntityClassName());
+        assertEquals(expected.getConfigType(), actual.getConfigType());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getExpressionConfig(), actual.getExpressionConfig());
+        assertEquals(expected.getInitialSerial(), actual.getInitialSerial());
+        assertEquals(expected.getGenFlag(), actual.getGenFlag());
+        assertEquals(expected.getCycleStrategy(), actual.getCycleStrategy());
+        assertEquals(expected.getReturnStrategy(), actual.getReturnStrategy());
+        assertEquals(expected.isActivated(), actual.isActivated());
+        assertEquals(expected.getTenantCode(), actual.getTenantCode());
+        assertEquals(expected.getShardCount(), actual.getShardCount());
+        assertEquals(expected.getGapless(), actual.getGapless());
+    }
+
+    private static void assertRecordEquals(IsolationRecord expected, IsolationRecord actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getConfigId(), actual.getConfigId());
+        assertEquals(expected.getIsolationCode(), actual.getIsolationCode());
+        assertEquals(expected.getDateString(), actual.getDateString());
+        assertEquals(expected.getCurrentNumber(), actual.getCurrentNumber());
+        assertEquals(expected.getTenantCode(), actual.getTenantCode());
+    }
+
+    @Test
+    public void configRoundTrip() {
+        SerialNumberConfig config = newConfig();
+        byte[] bytes = codec.encodeConfig(config);
+        assertNotEquals('{', bytes[0]);
+        assertConfigEquals(config, codec.decodeConfig(bytes));
+    }
+
+    @Test
+    public void configRoundTripWithNulls() {
+        SerialNumberConfig config = new SerialNumberConfig();
+        config.setConfigType(null);
+        config.setGenFlag(null);
+        config.setCycleStrategy(null);
+        config.setReturnStrategy(null);
+        config.setGapless(null);
+        SerialNumberConfig decoded = codec.decodeConfig(codec.encodeConfig(config));
+        assertConfigEquals(config, decoded);
+        assertNull(decoded.getId());
+        assertNull(decoded.getConfigType());
+        assertNull(decoded.getGenFlag());
+        assertNull(decoded.getShardCount());
+    }
+
+    @Test
+    public void recordRoundTrip() {
+        IsolationRecord record = newRecord();
+        assertRecordEquals(record, codec.decodeRecord(codec.encodeRecord(record)));
+
+        IsolationRecord empty = new IsolationRecord();
+        IsolationRecord decoded = codec.decodeRecord(codec.encodeRecord(empty));
+        assertRecordEquals(empty, decoded);
+        assertNull(decoded.getCurrentNumber());
+    }
+
+    @Test
+    public void legacyJsonIsDecoded() {
+        String config = "{\"id\":\"config-1\",\"entityClassName\":\"com.changhong.sei.test.entity.Order\","
+                + "\"configType\":\"BAR_TYPE\",\"expressionConfig\":\"PO#{0000}\",\"initialSerial\":5,"
+                + "\"cycleStrategy\":\"MONTH_CYCLE\",\"tenantCode\":\"10044\"}";
+        SerialNumberConfig decodedConfig = codec.decodeConfig(config.getBytes(StandardCharsets.UTF_8));
+        assertEquals("config-1", decodedConfig.getId());
+        assertEquals(ConfigType.BAR_TYPE, decodedConfig.getConfigType());
+        assertEquals(CycleStrategy.MONTH_CYCLE, decodedConfig.getCycleStrategy());
+        assertEquals(5L, decodedConfig.getInitialSerial());
+
+        String record = "{\"id\":\"record-1\",\"configId\":\"config-1\",\"isolationCode\":\"A01\","
+                + "\"dateString\":\"202610\",\"currentNumber\":42}";
+        IsolationRecord decodedRecord = codec.decodeRecord(record.getBytes(StandardCharsets.UTF_8));
+        assertEquals("record-1", decodedRecord.getId());
+        assertEquals(Long.valueOf(42L), decodedRecord.getCurrentNumber());
+    }
+
+    @Test
+    public void jsonCodecIsReadableByBinaryCodec() {
+        CompactCacheCodec jsonCodec = new CompactCacheCodec();
+        ReflectionTestUtils.setField(jsonCodec, "codec", "json");
+        byte[] config = jsonCodec.encodeConfig(newConfig());
+        assertEquals('{', config[0]);
+        assertConfigEquals(newConfig(), codec.decodeConfig(config));
+        assertRecordEquals(newRecord(), codec.decodeRecord(jsonCodec.encodeRecord(newRecord())));
+    }
+
+    @Test
+    public void unknownVersionIsIgnored() {
+        byte[] config = codec.encodeConfig(newConfig());
+        config[1] = 99;
+        assertNull(codec.decodeConfig(config));
+        byte[] record = codec.encodeRecord(newRecord());
+        record[1] = 99;
+        assertNull(codec.decodeRecord(record));
+    }
+
+    @Test
+    public void truncatedOrEmptyIsIgnored() {
+        byte[] config = codec.encodeConfig(newConfig());
+        assertNull(codec.decodeConfig(Arrays.copyOf(config, config.length / 2)));
+        byte[] record = codec.encodeRecord(newRecord());
+        assertNull(codec.decodeRecord(Arrays.copyOf(record, record.length - 3)));
+        assertNull(codec.decodeConfig(new byte[0]));
+        assertNull(codec.decodeRecord(null));
+    }
+}